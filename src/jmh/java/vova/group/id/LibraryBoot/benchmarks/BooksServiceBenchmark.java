@@ -0,0 +1,78 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.BookCursor;
+import vova.group.id.LibraryBoot.models.BookPageForm;
+import vova.group.id.LibraryBoot.models.BookSlice;
+import vova.group.id.LibraryBoot.services.BooksService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The books list in its four branches (page number or cursor, with or without sorting by year)
+ * and the title/author search. Pages and cursors point to the middle of the catalogue.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BooksServiceBenchmark {
+
+    private static final String BOOKS_PER_PAGE = "20";
+
+    private BooksService booksService;
+    private BookPageForm pageForm;
+    private BookPageForm pageSortedByYearForm;
+    private BookPageForm cursorForm;
+    private BookPageForm cursorSortedByYearForm;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        booksService = library.bean(BooksService.class);
+        JdbcTemplate jdbcTemplate = library.bean(JdbcTemplate.class);
+
+        int middleId = library.books / 2;
+        int middleYear = jdbcTemplate.queryForObject("SELECT book_year FROM Book WHERE id = ?", Integer.class, middleId);
+        String middlePage = String.valueOf(library.books / 2 / Integer.parseInt(BOOKS_PER_PAGE));
+
+        pageForm = new BookPageForm(middlePage, BOOKS_PER_PAGE, false);
+        pageSortedByYearForm = new BookPageForm(middlePage, BOOKS_PER_PAGE, true);
+        cursorForm = new BookPageForm(BOOKS_PER_PAGE, false, new BookCursor(false, middleYear, middleId).encode());
+        cursorSortedByYearForm = new BookPageForm(BOOKS_PER_PAGE, true, new BookCursor(false, middleYear, middleId).encode());
+    }
+
+    @Benchmark
+    public BookSlice indexByPage() {
+        return booksService.index(pageForm);
+    }
+
+    @Benchmark
+    public BookSlice indexByPageSortedByYear() {
+        return booksService.index(pageSortedByYearForm);
+    }
+
+    @Benchmark
+    public BookSlice indexByCursor() {
+        return booksService.index(cursorForm);
+    }
+
+    @Benchmark
+    public BookSlice indexByCursorSortedByYear() {
+        return booksService.index(cursorSortedByYearForm);
+    }
+
+    @Benchmark
+    public List<Book> searchTitle() {
+        return booksService.search("winter river", 0);
+    }
+
+    @Benchmark
+    public List<Book> searchAuthor() {
+        return booksService.search("author 4242", 0);
+    }
+}
@@ -0,0 +1,37 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import vova.group.id.LibraryBoot.exporting.BookExporter;
+import vova.group.id.LibraryBoot.exporting.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export of the whole catalogue to a stream that drops the bytes.
+ * With -prof gc the allocation per book should stay the same for every dataset size.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    @Param({"CSV", "NDJSON"})
+    public ExportFormat format;
+
+    private BookExporter bookExporter;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        bookExporter = library.bean(BookExporter.class);
+    }
+
+    @Benchmark
+    public long exportCatalogue() throws IOException {
+        return bookExporter.export(OutputStream.nullOutputStream(), format);
+    }
+}
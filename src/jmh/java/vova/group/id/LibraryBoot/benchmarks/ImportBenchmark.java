@@ -0,0 +1,55 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import vova.group.id.LibraryBoot.importing.ImportFormat;
+import vova.group.id.LibraryBoot.importing.ImportReport;
+import vova.group.id.LibraryBoot.importing.ImportService;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of a generated CSV file with a million books, one import per iteration.
+ * The target is under a minute. Run it on one dataset size: -p books=10000.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    private ImportService importService;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) throws IOException {
+        importService = library.bean(ImportService.class);
+        file = Files.createTempFile("books", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("title,author,year\n");
+            for (int i = 0; i < ROWS; i++)
+                writer.write("Imported title " + i + ",Author " + i % 5_000 + "," + (1500 + i % 520) + "\n");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ImportReport importMillionBooks() throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            ImportReport report = importService.importBooks(input, ImportFormat.CSV);
+            if (report.getImported() != ROWS)
+                throw new IllegalStateException("Imported " + report.getImported() + " of " + ROWS + ": " + report.getFailure());
+            return report;
+        }
+    }
+}
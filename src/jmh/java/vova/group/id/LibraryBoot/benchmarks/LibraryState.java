@@ -0,0 +1,127 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import vova.group.id.LibraryBoot.LibraryBootApplication;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The application on an in-memory H2 database (or another one, see baseArguments) filled with generated books and readers.
+ * Every tenth book has its own reader, a third of the books are taken and some of them are overdue.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final String[] WORDS = {"garden", "road", "winter", "river", "hunter", "city", "night",
+            "farm", "letters", "island", "war", "music", "stone", "mirror", "forest", "empire"};
+
+    @Param({"10000", "100000", "1000000"})
+    public int books;
+
+    public int readers;
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // command line arguments, so they win over application.properties and the profiles
+        List<String> arguments = new ArrayList<>(baseArguments());
+        arguments.addAll(arguments());
+        context = new SpringApplicationBuilder(LibraryBootApplication.class)
+                .web(webApplicationType())
+                .profiles(profiles())
+                .run(arguments.toArray(String[]::new));
+
+        // the tables come from the Flyway migrations on startup, a database kept between runs is emptied
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM Book");
+        jdbcTemplate.update("DELETE FROM Person");
+        readers = Math.max(books / 10, 1);
+        addReaders(jdbcTemplate);
+        addBooks(jdbcTemplate);
+        // the generated rows have ids 1..n, new ones continue after them
+        jdbcTemplate.execute("ALTER SEQUENCE person_id_seq RESTART WITH " + (readers + 1));
+        jdbcTemplate.execute("ALTER SEQUENCE book_id_seq RESTART WITH " + (books + 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // a state that needs a web server, another database or other settings extends this one
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected String[] profiles() {
+        return new String[]{"test"};
+    }
+
+    // the in-memory database, without SQL logging and statistics
+    protected List<String> baseArguments() {
+        return List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--logging.level.root=warn");
+    }
+
+    protected List<String> arguments() {
+        return List.of();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public static String email(int reader) {
+        return "reader" + reader + "@gmail.com";
+    }
+
+    private void addReaders(JdbcTemplate jdbcTemplate) {
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 1; i <= readers; i++) {
+            batch.add(new Object[]{i, "Reader Name", 1950 + i % 60, email(i)});
+            if (batch.size() == INSERT_BATCH_SIZE || i == readers) {
+                jdbcTemplate.batchUpdate("INSERT INTO Person (id, full_name, birth_year, email) VALUES (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void addBooks(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 1; i <= books; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String author = "Author " + random.nextInt(5_000);
+            int year = 1500 + random.nextInt(520);
+
+            Integer reader = null;
+            Timestamp takenAt = null;
+            if (i % 3 == 0) {
+                reader = (i / 3) % readers + 1;
+                takenAt = Timestamp.from(now.minus(random.nextInt(30), ChronoUnit.DAYS));
+            }
+            batch.add(new Object[]{i, reader, title, author, year, takenAt});
+
+            if (batch.size() == INSERT_BATCH_SIZE || i == books) {
+                jdbcTemplate.batchUpdate("INSERT INTO Book (id, person_id, title, author, book_year, taken_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.BookLoanResult;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.services.BooksService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout and return of a stack of free books, one request per book against one bulk request.
+ * Every invocation gives the books back, so the catalogue stays the same between invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int stack;
+
+    private BooksService booksService;
+    private List<Integer> bookIds;
+    private List<BookLoanRequest> loans;
+    private Person reader;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        booksService = library.bean(BooksService.class);
+        JdbcTemplate jdbcTemplate = library.bean(JdbcTemplate.class);
+
+        bookIds = jdbcTemplate.queryForList("SELECT id FROM Book WHERE person_id IS NULL AND id > ? ORDER BY id LIMIT ?",
+                Integer.class, library.books / 2, stack);
+        loans = bookIds.stream().map(id -> new BookLoanRequest(id, 1)).toList();
+        reader = new Person();
+        reader.setId(1);
+    }
+
+    @Benchmark
+    public int oneByOne() {
+        int done = 0;
+        for (int id : bookIds)
+            if (booksService.appointPerson(reader, id))
+                done++;
+        for (int id : bookIds)
+            booksService.free(id);
+        return done;
+    }
+
+    @Benchmark
+    public List<BookLoanResult> bulk() {
+        booksService.appointPeople(loans);
+        return booksService.freeBooks(bookIds);
+    }
+}
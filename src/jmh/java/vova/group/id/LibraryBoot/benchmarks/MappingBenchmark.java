@@ -0,0 +1,96 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.PersonDTO;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.util.BookMapper;
+import vova.group.id.LibraryBoot.util.PersonMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO conversions of the book and reader forms: the mappers of the application against the reflective
+ * ModelMapper path the controllers used before. They do not touch the database, so there is no dataset.
+ * Run with -prof gc to compare the allocations as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private PersonMapper personMapper;
+    private Book book;
+    private BookDTO bookDTO;
+    private Person person;
+    private PersonDTO personDTO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = new BookMapper();
+        personMapper = new PersonMapper();
+
+        book = new Book("Tiger hunters", "Ivan Bagryany", 1946);
+        book.setId(1);
+        bookDTO = new BookDTO("Tiger hunters", "Ivan Bagryany", "1946");
+        person = new Person("Johnny Cash", 1999, "test@ukr.net");
+        person.setId(1);
+        personDTO = new PersonDTO(1, "Johnny Cash", "1999", "test@ukr.net");
+    }
+
+    @Benchmark
+    public Book bookDTOToBook() {
+        return bookMapper.toBook(bookDTO);
+    }
+
+    @Benchmark
+    public Book bookDTOToBookModelMapper() {
+        Book mapped = modelMapper.map(bookDTO, Book.class);
+        mapped.setYear(Integer.parseInt(bookDTO.getYear()));
+        return mapped;
+    }
+
+    @Benchmark
+    public BookDTO bookToBookDTO() {
+        return bookMapper.toBookDTO(book);
+    }
+
+    @Benchmark
+    public BookDTO bookToBookDTOModelMapper() {
+        BookDTO mapped = modelMapper.map(book, BookDTO.class);
+        mapped.setYear(String.valueOf(book.getYear()));
+        return mapped;
+    }
+
+    @Benchmark
+    public Person personDTOToPerson() {
+        return personMapper.toPerson(personDTO);
+    }
+
+    @Benchmark
+    public Person personDTOToPersonModelMapper() {
+        Person mapped = modelMapper.map(personDTO, Person.class);
+        mapped.setBirthYear(Integer.parseInt(personDTO.getBirthYear()));
+        return mapped;
+    }
+
+    @Benchmark
+    public PersonDTO personToPersonDTO() {
+        return personMapper.toPersonDTO(person);
+    }
+
+    @Benchmark
+    public PersonDTO personToPersonDTOModelMapper() {
+        PersonDTO mapped = modelMapper.map(person, PersonDTO.class);
+        mapped.setBirthYear(String.valueOf(person.getBirthYear()));
+        return mapped;
+    }
+}
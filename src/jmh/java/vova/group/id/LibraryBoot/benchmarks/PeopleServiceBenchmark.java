@@ -0,0 +1,58 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import vova.group.id.LibraryBoot.dto.LoanSummary;
+import vova.group.id.LibraryBoot.dto.PersonDTO;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.util.PersonValidator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reader page and the reader form validation, which looks the email up in the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PeopleServiceBenchmark {
+
+    private PeopleService peopleService;
+    private PersonValidator personValidator;
+    private int middleReader;
+    private PersonDTO newPerson;
+    private PersonDTO takenEmailPerson;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        peopleService = library.bean(PeopleService.class);
+        personValidator = library.bean(PersonValidator.class);
+        middleReader = library.readers / 2 + 1;
+        newPerson = new PersonDTO("New Reader", "1990", "new.reader@gmail.com");
+        takenEmailPerson = new PersonDTO("New Reader", "1990", LibraryState.email(middleReader));
+    }
+
+    @Benchmark
+    public List<LoanSummary> showPersonBooks() {
+        return peopleService.showPersonBooks(middleReader);
+    }
+
+    @Benchmark
+    public Errors validateNewPerson() {
+        Errors errors = new BeanPropertyBindingResult(newPerson, "personDTO");
+        personValidator.validate(newPerson, errors);
+        return errors;
+    }
+
+    @Benchmark
+    public Errors validateTakenEmail() {
+        Errors errors = new BeanPropertyBindingResult(takenEmailPerson, "personDTO");
+        personValidator.validate(takenEmailPerson, errors);
+        return errors;
+    }
+}
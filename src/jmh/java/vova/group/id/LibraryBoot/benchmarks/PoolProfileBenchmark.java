@@ -0,0 +1,68 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The book list over HTTP on PostgreSQL, with the datasource as application.properties leaves it and with the
+ * prod profile (sized fixed pool, server-side prepared statements). SQL logging is off in both, it would only
+ * measure the console. Needs a PostgreSQL database that the benchmark may empty, by default library_benchmarks
+ * on localhost: mvn -P benchmarks,pool-loadtest test-compile exec:exec, other databases with
+ * -Djmh.args="PoolProfileBenchmark -p books=100000 -p url=jdbc:postgresql://host:5432/db -p user=... -p password=..."
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(64)
+@Fork(1)
+public class PoolProfileBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server extends WebState {
+
+        @Param({"default", "prod"})
+        public String datasource;
+
+        @Param("jdbc:postgresql://localhost:5432/library_benchmarks")
+        public String url;
+
+        @Param("postgres")
+        public String user;
+
+        @Param("postgres")
+        public String password;
+
+        @Override
+        protected String[] profiles() {
+            return datasource.equals("prod") ? new String[]{"prod"} : new String[0];
+        }
+
+        @Override
+        protected List<String> baseArguments() {
+            return List.of(
+                    "--spring.datasource.url=" + url,
+                    "--spring.datasource.username=" + user,
+                    "--spring.datasource.password=" + password,
+                    "--spring.jpa.show-sql=false",
+                    "--spring.jpa.properties.hibernate.show_sql=false",
+                    "--logging.level.root=warn",
+                    "--logging.level.vova.group.id.LibraryBoot.config=info");
+        }
+    }
+
+    @Benchmark
+    public int firstPage(Server server) throws IOException, InterruptedException {
+        return server.get("/library/books?booksPerPage=20");
+    }
+
+    // OFFSET pages further in, sorted by year
+    @Benchmark
+    public int sortedPage(Server server) throws IOException, InterruptedException {
+        return server.get("/library/books?booksPerPage=20&sortByYear=true&page=" + ThreadLocalRandom.current().nextInt(50));
+    }
+}
@@ -0,0 +1,90 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.repositories.BooksRepository;
+import vova.group.id.LibraryBoot.repositories.PeopleRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The books and people lists loaded as managed entities, as before the projections, against the BookSummary
+ * and PersonSummary projections they are served from now. Both sides run the same select in a read-only
+ * transaction like the services, with the caches off so every call reads the rows.
+ * The people list holds every reader, a tenth of the books. Run with -prof gc to compare the allocations:
+ * mvn -P benchmarks test-compile exec:exec -Djmh.args="ProjectionBenchmark -p books=1000000 -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Uncached extends LibraryState {
+
+        @Override
+        protected List<String> arguments() {
+            return List.of(
+                    "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                    "--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        }
+    }
+
+    // a page of the books list and a page as large as the bulk operations load
+    @Param({"20", "1000"})
+    public int booksPerPage;
+
+    private BooksRepository booksRepository;
+    private PeopleRepository peopleRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+    private int middleId;
+
+    @Setup(Level.Trial)
+    public void setUp(Uncached library) {
+        booksRepository = library.bean(BooksRepository.class);
+        peopleRepository = library.bean(PeopleRepository.class);
+        entityManager = library.bean(EntityManager.class);
+        readOnly = new TransactionTemplate(library.bean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        middleId = library.books / 2;
+    }
+
+    @Benchmark
+    public List<Book> booksAsEntities() {
+        return readOnly.execute(status -> entityManager
+                .createQuery("select b from Book b where b.id > :id order by b.id", Book.class)
+                .setParameter("id", middleId)
+                .setMaxResults(booksPerPage)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<BookSummary> booksAsProjections() {
+        return readOnly.execute(status ->
+                booksRepository.findByIdGreaterThanOrderByIdAsc(middleId, PageRequest.ofSize(booksPerPage)));
+    }
+
+    @Benchmark
+    public List<Person> peopleAsEntities() {
+        return readOnly.execute(status -> entityManager
+                .createQuery("select p from Person p order by p.id", Person.class)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<PersonSummary> peopleAsProjections() {
+        return readOnly.execute(status -> peopleRepository.findSummariesByOrderByIdAsc());
+    }
+}
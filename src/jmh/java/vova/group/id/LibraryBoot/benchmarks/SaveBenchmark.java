@@ -0,0 +1,58 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.services.BooksService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stack of new books saved through BooksService.save in one transaction.
+ * Ids from a pooled sequence let Hibernate send the inserts as JDBC batches; with IDENTITY every
+ * insert went out on its own to read the generated id back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveBenchmark {
+
+    @Param({"100", "1000"})
+    public int stack;
+
+    private BooksService booksService;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        booksService = library.bean(BooksService.class);
+        transactionTemplate = library.bean(TransactionTemplate.class);
+        jdbcTemplate = library.bean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeSavedBooks() {
+        jdbcTemplate.update("DELETE FROM Book WHERE title LIKE 'Saved title %'");
+    }
+
+    @Benchmark
+    public int saveStack() {
+        return transactionTemplate.execute(status -> {
+            int last = 0;
+            for (int i = 0; i < stack; i++) {
+                Book book = new Book();
+                book.setTitle("Saved title " + i);
+                book.setAuthor("Some Author");
+                book.setYear(1950);
+                booksService.save(book);
+                last = book.getId();
+            }
+            return last;
+        });
+    }
+}
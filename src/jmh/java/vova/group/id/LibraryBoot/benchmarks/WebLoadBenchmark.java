@@ -0,0 +1,46 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The book list and the book page over HTTP, with more concurrent clients than Tomcat has platform threads.
+ * Throughput and the latency percentiles of SampleTime are compared between the default thread pool and the
+ * virtual profile. Run it with the loadtest profile: mvn -P benchmarks,loadtest test-compile exec:exec
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(300)
+@Fork(1)
+public class WebLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server extends WebState {
+
+        @Param({"platform", "virtual"})
+        public String threads;
+
+        @Override
+        protected List<String> arguments() {
+            return threads.equals("virtual")
+                    ? List.of("--server.port=0", "--spring.profiles.active=virtual")
+                    : super.arguments();
+        }
+    }
+
+    @Benchmark
+    public int booksPage(Server server) throws IOException, InterruptedException {
+        return server.get("/library/books?booksPerPage=20");
+    }
+
+    @Benchmark
+    public int bookPage(Server server) throws IOException, InterruptedException {
+        return server.get("/library/books/" + ThreadLocalRandom.current().nextInt(1, server.books + 1));
+    }
+}
@@ -0,0 +1,51 @@
+package vova.group.id.LibraryBoot.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+/**
+ * The application served by Tomcat on a free port, and an HTTP client for the benchmark threads.
+ */
+@State(Scope.Benchmark)
+public class WebState extends LibraryState {
+
+    public HttpClient client;
+    public String baseUrl;
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected List<String> arguments() {
+        return List.of("--server.port=0");
+    }
+
+    @Setup(Level.Trial)
+    public void connect() {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        client.close();
+    }
+
+    public int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200)
+            throw new IllegalStateException(path + " answered " + response.statusCode());
+        return response.body().length;
+    }
+}
@@ -0,0 +1,28 @@
+package vova.group.id.LibraryBoot.cache;
+
+import lombok.Getter;
+
+/**
+ * Hit and miss counters of one second-level or query cache region, as answered by /library/admin/cache.
+ */
+@Getter
+public class CacheRegionReport {
+
+    private final String region;
+    private final long hits;
+    private final long misses;
+    private final long puts;
+    private final long size;
+
+    public CacheRegionReport(String region, long hits, long misses, long puts, long size) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.size = size;
+    }
+
+    public double getHitRatio() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,57 @@
+package vova.group.id.LibraryBoot.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A version and a change time for each table, behind the ETag and Last-Modified of the pages built from them.
+ * The services move the version after the commit of every change, so a page answered with 304 has nothing newer
+ * to show. The versions live in memory: a restart starts new ones (the tags carry the start time), and rows
+ * changed directly in the database or by another instance are not noticed.
+ */
+@Component
+public class CatalogueVersions {
+
+    public enum Table {BOOK, PERSON}
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Table, AtomicLong> versions = new EnumMap<>(Table.class);
+    private final Map<Table, AtomicLong> modifiedAt = new EnumMap<>(Table.class);
+
+    public CatalogueVersions() {
+        long now = System.currentTimeMillis();
+        for (Table table : Table.values()) {
+            versions.put(table, new AtomicLong());
+            modifiedAt.put(table, new AtomicLong(now));
+        }
+    }
+
+    // rows of the tables were inserted, updated or deleted in the current transaction
+    public void changed(Table... tables) {
+        LibraryCache.afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            for (Table table : tables) {
+                versions.get(table).incrementAndGet();
+                modifiedAt.get(table).accumulateAndGet(now, Math::max);
+            }
+        });
+    }
+
+    // e.g. "lq2x7c1-4-9" for the versions 4 and 9 of the tables
+    public String etag(Table... tables) {
+        StringBuilder etag = new StringBuilder(instance);
+        for (Table table : tables)
+            etag.append('-').append(versions.get(table).get());
+        return etag.toString();
+    }
+
+    public long lastModified(Table... tables) {
+        long lastModified = 0;
+        for (Table table : tables)
+            lastModified = Math.max(lastModified, modifiedAt.get(table).get());
+        return lastModified;
+    }
+}
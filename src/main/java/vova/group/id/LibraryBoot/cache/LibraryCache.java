@@ -0,0 +1,92 @@
+package vova.group.id.LibraryBoot.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Explicit eviction for the cached data Hibernate cannot keep right by itself:
+ * the inverse Person.books collection and the rows changed by the database (ON DELETE SET NULL).
+ * Evictions run after the commit, so a concurrent reader cannot put the old state back.
+ */
+@Component
+public class LibraryCache {
+
+    public static final String BOOK_REGION = "book";
+    public static final String PERSON_REGION = "person";
+    public static final String PERSON_BOOKS_REGION = "person-books";
+    public static final String PEOPLE_QUERY_REGION = "people";
+
+    private static final String PERSON_BOOKS_ROLE = Person.class.getName() + ".books";
+
+    private final SessionFactory sessionFactory;
+
+    @Autowired
+    public LibraryCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    // the reader took or returned a book
+    public void evictReaderBooks(Person reader) {
+        if (reader == null)
+            return;
+        int readerId = reader.getId();
+        afterCommit(() -> sessionFactory.getCache().evictCollectionData(PERSON_BOOKS_ROLE, readerId));
+    }
+
+    // the database has cleared Book.reader of the deleted reader's books
+    public void evictBooks() {
+        afterCommit(() -> sessionFactory.getCache().evictEntityData(Book.class));
+    }
+
+    // readers inserted with plain SQL, Hibernate does not know the cached people list is stale
+    public void evictPeopleQueries() {
+        afterCommit(() -> sessionFactory.getCache().evictQueryRegion(PEOPLE_QUERY_REGION));
+    }
+
+    // for data changed behind Hibernate's back, e.g. plain SQL
+    public void evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    public List<CacheRegionReport> report() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<CacheRegionReport> regions = new ArrayList<>();
+        for (String region : List.of(BOOK_REGION, PERSON_REGION, PERSON_BOOKS_REGION))
+            regions.add(toReport(region, statistics.getDomainDataRegionStatistics(region)));
+        regions.add(toReport(PEOPLE_QUERY_REGION, statistics.getQueryRegionStatistics(PEOPLE_QUERY_REGION)));
+        return regions;
+    }
+
+    private static CacheRegionReport toReport(String region, CacheRegionStatistics statistics) {
+        // a query region only exists after its first query
+        if (statistics == null)
+            return new CacheRegionReport(region, 0, 0, 0, 0);
+        return new CacheRegionReport(region, statistics.getHitCount(), statistics.getMissCount(),
+                statistics.getPutCount(), Math.max(statistics.getElementCountInMemory(), 0));
+    }
+
+    // also used by CatalogueVersions
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
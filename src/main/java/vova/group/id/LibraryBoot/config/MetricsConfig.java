@@ -0,0 +1,37 @@
+package vova.group.id.LibraryBoot.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import vova.group.id.LibraryBoot.metrics.SqlCountInterceptor;
+import vova.group.id.LibraryBoot.metrics.SqlStatementCounter;
+
+/**
+ * The SQL statements per request; the services, Hibernate statistics and the Hikari pool are measured
+ * by the actuator itself (see the management properties).
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final SqlCountInterceptor sqlCountInterceptor;
+
+    @Autowired
+    public MetricsConfig(SqlCountInterceptor sqlCountInterceptor) {
+        this.sqlCountInterceptor = sqlCountInterceptor;
+    }
+
+    // a statement inspector set in the properties (QueryPlanTest records the SQL with one) is left in place
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounting(SqlStatementCounter counter) {
+        return properties -> properties.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, counter);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlCountInterceptor);
+    }
+}
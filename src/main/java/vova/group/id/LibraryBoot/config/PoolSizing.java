@@ -0,0 +1,53 @@
+package vova.group.id.LibraryBoot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizes the Hikari pool of the prod profile. PostgreSQL does best with about (2 x cores) + 1 busy connections,
+ * more only queue inside the database, and all instances together have to stay under max_connections.
+ * The pool is fixed: idle connections are kept, so a burst does not wait for new ones.
+ */
+@Component
+@Profile("prod")
+public class PoolSizing implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(PoolSizing.class);
+
+    private final Environment environment;
+
+    @Autowired
+    public PoolSizing(Environment environment) {
+        this.environment = environment;
+    }
+
+    // databaseCores 0 means the database runs on a machine like this one
+    public static int poolSize(int databaseCores, int maxConnections, int instances) {
+        int cores = databaseCores > 0 ? databaseCores : Runtime.getRuntime().availableProcessors();
+        int share = maxConnections / Math.max(instances, 1);
+        return Math.max(Math.min(2 * cores + 1, share), 1);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource dataSource))
+            return bean;
+
+        if (!environment.containsProperty("spring.datasource.hikari.maximum-pool-size")) {
+            int size = poolSize(environment.getProperty("library.datasource.database-cores", Integer.class, 0),
+                    environment.getProperty("library.datasource.max-connections", Integer.class, 100),
+                    environment.getProperty("library.datasource.instances", Integer.class, 1));
+            dataSource.setMaximumPoolSize(size);
+        }
+        if (!environment.containsProperty("spring.datasource.hikari.minimum-idle"))
+            dataSource.setMinimumIdle(dataSource.getMaximumPoolSize());
+        log.info("Connection pool of {} connections", dataSource.getMaximumPoolSize());
+        return dataSource;
+    }
+}
@@ -0,0 +1,56 @@
+package vova.group.id.LibraryBoot.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.WebContentInterceptor;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // an ETag from the JSON of the API GETs that did not set their own: the body is still built and hashed,
+    // a client that sends the tag back in If-None-Match is only spared the transfer
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> apiEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/api/v1/*");
+        registration.setName("apiEtagFilter");
+        return registration;
+    }
+
+    // css, scripts and images get the hash of their content in the name, e.g. /css/books-5d41402a.css,
+    // so they can be kept by the browser for good: a changed file is a new URL
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String folder : List.of("css", "javascript", "images"))
+            registry.addResourceHandler("/" + folder + "/**")
+                    .addResourceLocations("classpath:/static/" + folder + "/")
+                    .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                    .resourceChain(true)
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    // rewrites the th:href and th:src of the templates to the fingerprinted names
+    @Bean
+    public FilterRegistrationBean<ResourceUrlEncodingFilter> resourceUrlEncodingFilter() {
+        return new FilterRegistrationBean<>(new ResourceUrlEncodingFilter());
+    }
+
+    // the pages with an ETag (see CatalogueVersions) are asked for again on every view, the answer is mostly a 304
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        WebContentInterceptor pages = new WebContentInterceptor();
+        pages.addCacheMapping(CacheControl.noCache().cachePrivate(), "/library/books", "/library/books/*", "/library/people/*");
+        registry.addInterceptor(pages);
+    }
+}
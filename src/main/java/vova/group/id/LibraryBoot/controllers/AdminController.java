@@ -0,0 +1,85 @@
+package vova.group.id.LibraryBoot.controllers;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import vova.group.id.LibraryBoot.cache.CacheRegionReport;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.exporting.BookExporter;
+import vova.group.id.LibraryBoot.exporting.ExportFormat;
+import vova.group.id.LibraryBoot.importing.ImportFormat;
+import vova.group.id.LibraryBoot.importing.ImportReport;
+import vova.group.id.LibraryBoot.importing.ImportService;
+import vova.group.id.LibraryBoot.search.BookSearchIndex;
+import vova.group.id.LibraryBoot.search.SearchIndexReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Operational endpoints, they answer with JSON instead of pages.
+ */
+@RestController
+@RequestMapping("/library/admin")
+public class AdminController {
+
+    private final BookSearchIndex searchIndex;
+    private final LibraryCache libraryCache;
+    private final ImportService importService;
+    private final BookExporter bookExporter;
+
+    @Autowired
+    public AdminController(BookSearchIndex searchIndex, LibraryCache libraryCache, ImportService importService,
+                           BookExporter bookExporter) {
+        this.searchIndex = searchIndex;
+        this.libraryCache = libraryCache;
+        this.importService = importService;
+        this.bookExporter = bookExporter;
+    }
+
+    @GetMapping("/search-index")
+    public SearchIndexReport searchIndexReport() {
+        return searchIndex.report();
+    }
+
+    @PostMapping("/search-index/rebuild")
+    public SearchIndexReport rebuildSearchIndex() {
+        return searchIndex.rebuild();
+    }
+
+    @GetMapping("/cache")
+    public List<CacheRegionReport> cacheReport() {
+        return libraryCache.report();
+    }
+
+    // the file is the request body, e.g. curl -H "Content-Type: text/csv" --data-binary @books.csv
+    @PostMapping(path = "/import/books", consumes = {"text/csv", "application/json"})
+    public ImportReport importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        return importService.importBooks(body, ImportFormat.of(contentType));
+    }
+
+    @PostMapping(path = "/import/people", consumes = {"text/csv", "application/json"})
+    public ImportReport importPeople(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        return importService.importPeople(body, ImportFormat.of(contentType));
+    }
+
+    // progress of the running import, or the outcome of the last one
+    @GetMapping("/import")
+    public ResponseEntity<ImportReport> importReport() {
+        return ResponseEntity.of(importService.lastReport());
+    }
+
+    // all books with their current readers, written to the response while they are read
+    @GetMapping("/export/books")
+    public void exportBooks(@RequestParam(name = "format", defaultValue = "csv") String format,
+                            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=books." + exportFormat.getExtension());
+        bookExporter.export(response.getOutputStream(), exportFormat);
+    }
+}
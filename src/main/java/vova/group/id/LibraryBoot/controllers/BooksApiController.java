@@ -0,0 +1,191 @@
+package vova.group.id.LibraryBoot.controllers;
+
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
+import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.BookDetails;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.BookLoanResult;
+import vova.group.id.LibraryBoot.dto.ValidationError;
+import vova.group.id.LibraryBoot.history.LoanLedger;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.BookPageForm;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.util.BookMapper;
+import vova.group.id.LibraryBoot.util.BookValidator;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.BOOK;
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.PERSON;
+
+/**
+ * Books as JSON for other systems, the same operations as the pages of BooksController.
+ * GET answers carry the ETag and Last-Modified of the tables they are built from (see CatalogueVersions)
+ * and are answered with 304 before the service runs while those stay the same.
+ */
+@RestController
+@RequestMapping("/api/v1/books")
+public class BooksApiController {
+
+    private final BooksService booksService;
+    private final BookValidator bookValidator;
+    private final BookMapper bookMapper;
+    private final CatalogueVersions catalogueVersions;
+
+    @Autowired
+    public BooksApiController(BooksService booksService, BookValidator bookValidator, BookMapper bookMapper,
+                              CatalogueVersions catalogueVersions) {
+        this.booksService = booksService;
+        this.bookValidator = bookValidator;
+        this.bookMapper = bookMapper;
+        this.catalogueVersions = catalogueVersions;
+    }
+
+    // keyset pages like the books list: ?booksPerPage=20&sortByYear=true&cursor=<nextCursor of the last page>
+    @GetMapping
+    public ResponseEntity<?> index(@Valid BookPageForm form, BindingResult bindingResult, WebRequest request) {
+        if (notModified(request, BOOK))
+            return null;
+        if (bindingResult.hasErrors())
+            return ResponseEntity.badRequest().body(ValidationError.of(bindingResult));
+        return ResponseEntity.ok(booksService.index(form));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BookDetails> show(@PathVariable("id") int id, WebRequest request) {
+        // the book and the name of its reader
+        if (notModified(request, BOOK, PERSON))
+            return null;
+        Book book = booksService.showWithReader(id);
+        return book == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(bookMapper.toBookDetails(book));
+    }
+
+    // checkouts and returns, newest first: ?cursor=<nextCursor of the last page> for older ones
+    @GetMapping("/{id}/history")
+    public ResponseEntity<?> history(@PathVariable("id") int id,
+                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                     WebRequest request) {
+        // the loans move the book version, the names of the readers the person version
+        if (notModified(request, BOOK, PERSON))
+            return null;
+        if (cursor != null && !LoanLedger.isValidCursor(cursor))
+            return ResponseEntity.badRequest().body(List.of(new ValidationError("cursor", "Invalid cursor")));
+        return ResponseEntity.ok(booksService.history(id, cursor));
+    }
+
+    @GetMapping("/search")
+    public List<BookDetails> search(@RequestParam("query") String query,
+                                    @RequestParam(value = "page", defaultValue = "0") int page,
+                                    WebRequest request) {
+        if (notModified(request, BOOK))
+            return null;
+        return booksService.search(query, page).stream().map(bookMapper::toBookDetails).toList();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody @Valid BookDTO bookDTO, BindingResult bindingResult) {
+        bookValidator.validate(bookDTO, bindingResult);
+        if (bindingResult.hasErrors())
+            return ResponseEntity.badRequest().body(ValidationError.of(bindingResult));
+
+        Book book = bookMapper.toBook(bookDTO);
+        book.setId(0);
+        booksService.save(book);
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").build(book.getId()))
+                .body(bookMapper.toBookDetails(book));
+    }
+
+    // the body carries the version of the book it was read with, a newer book in the database answers 409
+    @PutMapping("/{id}")
+    public ResponseEntity<?> update(@PathVariable("id") int id, @RequestBody @Valid BookDTO bookDTO,
+                                    BindingResult bindingResult) {
+        bookValidator.validate(bookDTO, bindingResult);
+        if (bindingResult.hasErrors())
+            return ResponseEntity.badRequest().body(ValidationError.of(bindingResult));
+        if (booksService.show(id) == null)
+            return ResponseEntity.notFound().build();
+
+        try {
+            booksService.update(id, bookMapper.toBook(bookDTO));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(List.of(new ValidationError("version", "The book was changed by someone else")));
+        }
+        return ResponseEntity.ok(bookMapper.toBookDetails(booksService.showWithReader(id)));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable("id") int id) {
+        booksService.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // a book changed meanwhile by someone else is tried once more, a second conflict answers 409
+    @PostMapping("/{id}/checkout")
+    public ResponseEntity<?> checkOut(@PathVariable("id") int id, @RequestParam("readerId") int readerId) {
+        List<BookLoanRequest> loans = List.of(new BookLoanRequest(id, readerId));
+        try {
+            return loanResponse(retryOnce(() -> booksService.appointPeople(loans)).getFirst());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return changedMeanwhile();
+        }
+    }
+
+    @PostMapping("/{id}/return")
+    public ResponseEntity<?> giveBack(@PathVariable("id") int id) {
+        try {
+            return loanResponse(retryOnce(() -> booksService.freeBooks(List.of(id))).getFirst());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return changedMeanwhile();
+        }
+    }
+
+    // bulk checkout and return, a status per book as on /library/books/appoint and /free
+    @PostMapping("/checkout")
+    public List<BookLoanResult> checkOutAll(@RequestBody List<BookLoanRequest> loans) {
+        return retryOnce(() -> booksService.appointPeople(loans));
+    }
+
+    @PostMapping("/return")
+    public List<BookLoanResult> giveBackAll(@RequestBody List<Integer> bookIds) {
+        return retryOnce(() -> booksService.freeBooks(bookIds));
+    }
+
+    // the second attempt reports a book changed by the first conflict as taken or free
+    private static List<BookLoanResult> retryOnce(Supplier<List<BookLoanResult>> loans) {
+        try {
+            return loans.get();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return loans.get();
+        }
+    }
+
+    private static ResponseEntity<List<ValidationError>> changedMeanwhile() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(List.of(new ValidationError("version", "The book was changed by someone else")));
+    }
+
+    // sets the ETag and Last-Modified of the tables, true when the client already has them
+    private boolean notModified(WebRequest request, CatalogueVersions.Table... tables) {
+        return request.checkNotModified(catalogueVersions.etag(tables), catalogueVersions.lastModified(tables));
+    }
+
+    private static ResponseEntity<BookLoanResult> loanResponse(BookLoanResult result) {
+        HttpStatus status = switch (result.getStatus()) {
+            case DONE -> HttpStatus.OK;
+            case ALREADY_TAKEN, ALREADY_FREE -> HttpStatus.CONFLICT;
+            case BOOK_NOT_FOUND, READER_NOT_FOUND -> HttpStatus.NOT_FOUND;
+        };
+        return ResponseEntity.status(status).body(result);
+    }
+}
@@ -1,62 +1,101 @@
 package vova.group.id.LibraryBoot.controllers;
 
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
 import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.BookLoanResult;
+import vova.group.id.LibraryBoot.dto.OverdueLoan;
 import vova.group.id.LibraryBoot.models.Book;
 import vova.group.id.LibraryBoot.models.BookPageForm;
+import vova.group.id.LibraryBoot.models.BookSlice;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.services.BooksService;
 import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.util.BookMapper;
 import vova.group.id.LibraryBoot.util.BookValidator;
 
+import java.util.List;
+
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.BOOK;
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.PERSON;
+
 
 @Controller
 @RequestMapping("/library/books")
 public class BooksController {
 
     private final BooksService booksService;
-    private final PeopleService peopleService;
     private final BookValidator bookValidator;
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
+    private final CatalogueVersions catalogueVersions;
 
     @Autowired
-    public BooksController(BooksService booksService, PeopleService personService, BookValidator bookValidator, ModelMapper modelMapper) {
+    public BooksController(BooksService booksService, BookValidator bookValidator, BookMapper bookMapper,
+                           CatalogueVersions catalogueVersions) {
         this.booksService = booksService;
-        this.peopleService = personService;
         this.bookValidator = bookValidator;
-        this.modelMapper = modelMapper;
+        this.bookMapper = bookMapper;
+        this.catalogueVersions = catalogueVersions;
     }
 
 
     @GetMapping()
     public String index(@ModelAttribute("form") @Valid BookPageForm form,
-                        BindingResult bindingResult, Model model) {
+                        BindingResult bindingResult, Model model, WebRequest request) {
+
+        // the list shows nothing but the books, answered with 304 until one of them changes
+        if (request.checkNotModified(catalogueVersions.etag(BOOK), catalogueVersions.lastModified(BOOK)))
+            return null;
 
         if (bindingResult.hasErrors()) {
             return "books/index";
         }
 
-        model.addAttribute("books", booksService.index(form));
+        BookSlice slice = booksService.index(form);
+        model.addAttribute("books", slice.getBooks());
+        if (slice.getNextCursor() != null)
+            model.addAttribute("nextCursor", slice.getNextCursor());
+        if (slice.getPrevCursor() != null)
+            model.addAttribute("prevCursor", slice.getPrevCursor());
 
         return "books/index";
     }
 
+    @GetMapping("/overdue")
+    public String overdue(@RequestParam(value = "page", defaultValue = "0") int page, Model model) {
+        List<OverdueLoan> overdueLoans = booksService.overdueLoans(page);
+        model.addAttribute("overdueLoans", overdueLoans);
+        model.addAttribute("page", page);
+        model.addAttribute("hasNextPage", overdueLoans.size() == BooksService.OVERDUE_LOANS_PER_PAGE);
+        return "books/overdue";
+    }
+
     @GetMapping("/{id}")
-    public String show(@PathVariable("id") int id, Model model, @ModelAttribute("person") Person person) {
+    public String show(@PathVariable("id") int id, Model model, @ModelAttribute("person") Person person,
+                       WebRequest request) {
 
-        model.addAttribute("book", booksService.show(id));
+        // the book and the name of its reader; the conflict message of a failed checkout is always shown
+        if (!model.containsAttribute("conflict")
+                && request.checkNotModified(catalogueVersions.etag(BOOK, PERSON), catalogueVersions.lastModified(BOOK, PERSON)))
+            return null;
 
-        Person reader = booksService.showBookReader(id);
-        if (reader == null) {
-            model.addAttribute("people", peopleService.index());
+        Book book = booksService.showWithReader(id);
+        model.addAttribute("book", book);
+
+        // a free book gets the reader picker, which loads the readers page by page from /library/people/picker
+        if (book != null && book.getReader() != null) {
+            model.addAttribute("bookReader", book.getReader());
         } else {
-            model.addAttribute("bookReader", reader);
+            model.addAttribute("readerPickerPageSize", PeopleService.READER_PICKER_PAGE_SIZE);
         }
 
         return "books/show";
@@ -68,10 +107,15 @@ public class BooksController {
     }
 
     @PostMapping("/search")
-    public String findBook(@RequestParam("titleFragment") String titleFragment, Model model) {
-
-        // find the books list
-        model.addAttribute("searchedBooks", booksService.index(titleFragment));
+    public String findBook(@RequestParam("titleFragment") String titleFragment,
+                           @RequestParam(value = "page", defaultValue = "0") int page, Model model) {
+
+        // find the books list by title or author
+        List<Book> searchedBooks = booksService.search(titleFragment, page);
+        model.addAttribute("searchedBooks", searchedBooks);
+        model.addAttribute("titleFragment", titleFragment);
+        model.addAttribute("page", page);
+        model.addAttribute("hasNextPage", searchedBooks.size() == BooksService.SEARCH_RESULTS_PER_PAGE);
         return "books/search";
     }
 
@@ -90,13 +134,13 @@ public class BooksController {
             return "books/new";
         }
 
-        booksService.save(convertBookDTOToBook(bookDTO));
+        booksService.save(bookMapper.toBook(bookDTO));
         return "redirect:/library/books";
     }
 
     @GetMapping("/{id}/edit")
     public String edit(Model model, @PathVariable("id") int id) {
-        model.addAttribute("bookDTO", convertBookToBookDTO(booksService.show(id)));
+        model.addAttribute("bookDTO", bookMapper.toBookDTO(booksService.show(id)));
         return "books/edit";
     }
 
@@ -109,16 +153,47 @@ public class BooksController {
             return "books/edit";
         }
 
-        booksService.update(id, convertBookDTOToBook(bookDTO));
+        try {
+            booksService.update(id, bookMapper.toBook(bookDTO));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // the book was changed after this form was opened
+            bindingResult.reject("", "The book was changed by someone else, please reload the page");
+            return "books/edit";
+        }
         return "redirect:/library/books/" + id;
     }
 
     @PatchMapping("/{id}/appoint")
-    public String appointPerson(@ModelAttribute("person") Person person, @PathVariable("id") int bookId) {
-        booksService.appointPerson(person, bookId);
+    public String appointPerson(@ModelAttribute("person") Person person, @PathVariable("id") int bookId,
+                                RedirectAttributes redirectAttributes) {
+        if (!booksService.appointPerson(person, bookId))
+            redirectAttributes.addFlashAttribute("conflict", "The book has already been given to another reader");
         return "redirect:/library/books/" + bookId;
     }
 
+    // bulk checkout as JSON, e.g. [{"bookId": 1, "readerId": 2}], answered with a status per book
+    @PatchMapping("/appoint")
+    @ResponseBody
+    public List<BookLoanResult> appointPeople(@RequestBody List<BookLoanRequest> loans) {
+        try {
+            return booksService.appointPeople(loans);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // a book of the batch was changed meanwhile, the second attempt reports it as taken or free
+            return booksService.appointPeople(loans);
+        }
+    }
+
+    // bulk return as JSON, e.g. [1, 2, 3]
+    @PatchMapping("/free")
+    @ResponseBody
+    public List<BookLoanResult> freeBooks(@RequestBody List<Integer> bookIds) {
+        try {
+            return booksService.freeBooks(bookIds);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return booksService.freeBooks(bookIds);
+        }
+    }
+
     @PatchMapping("/{id}/free")
     public String free(@PathVariable("id") int id) {
         booksService.free(id);
@@ -130,16 +205,4 @@ public class BooksController {
         booksService.delete(id);
         return "redirect:/library/books";
     }
-
-    public Book convertBookDTOToBook(BookDTO bookDTO) {
-        Book book = modelMapper.map(bookDTO, Book.class);
-        book.setYear(Integer.parseInt(bookDTO.getYear()));
-        return book;
-    }
-
-    public BookDTO convertBookToBookDTO(Book book) {
-        BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-        bookDTO.setYear(String.valueOf(book.getYear()));
-        return bookDTO;
-    }
 }
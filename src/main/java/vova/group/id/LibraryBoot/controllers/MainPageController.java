@@ -1,13 +1,24 @@
 package vova.group.id.LibraryBoot.controllers;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import vova.group.id.LibraryBoot.services.StatisticsService;
 
 @Controller
 public class MainPageController {
 
+    private final StatisticsService statisticsService;
+
+    @Autowired
+    public MainPageController(StatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
     @GetMapping("/library")
-    public String index() {
+    public String index(Model model) {
+        model.addAttribute("statistics", statisticsService.dashboard());
         return "index";
     }
 }
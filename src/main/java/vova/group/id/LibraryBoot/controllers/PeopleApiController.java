@@ -0,0 +1,129 @@
+package vova.group.id.LibraryBoot.controllers;
+
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
+import vova.group.id.LibraryBoot.dto.PersonDTO;
+import vova.group.id.LibraryBoot.dto.PersonDetails;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
+import vova.group.id.LibraryBoot.dto.ReaderOption;
+import vova.group.id.LibraryBoot.dto.ValidationError;
+import vova.group.id.LibraryBoot.history.LoanLedger;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.util.PersonMapper;
+import vova.group.id.LibraryBoot.util.PersonValidator;
+
+import java.util.List;
+
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.BOOK;
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.PERSON;
+
+/**
+ * Readers as JSON for other systems, the same operations as the pages of PeopleController.
+ * GET answers carry the ETag of the tables they are built from (see CatalogueVersions)
+ * and are answered with 304 before the service runs while those stay the same.
+ */
+@RestController
+@RequestMapping("/api/v1/people")
+public class PeopleApiController {
+
+    private final PeopleService peopleService;
+    private final PersonValidator personValidator;
+    private final PersonMapper personMapper;
+    private final CatalogueVersions catalogueVersions;
+
+    @Autowired
+    public PeopleApiController(PeopleService peopleService, PersonValidator personValidator, PersonMapper personMapper,
+                               CatalogueVersions catalogueVersions) {
+        this.peopleService = peopleService;
+        this.personValidator = personValidator;
+        this.personMapper = personMapper;
+        this.catalogueVersions = catalogueVersions;
+    }
+
+    @GetMapping
+    public List<PersonSummary> index(WebRequest request) {
+        if (request.checkNotModified(catalogueVersions.etag(PERSON), catalogueVersions.lastModified(PERSON)))
+            return null;
+        return peopleService.index();
+    }
+
+    // readers whose name starts with the prefix, a page at a time
+    @GetMapping("/search")
+    public List<ReaderOption> search(@RequestParam("prefix") String prefix,
+                                     @RequestParam(value = "page", defaultValue = "0") int page,
+                                     WebRequest request) {
+        if (request.checkNotModified(catalogueVersions.etag(PERSON), catalogueVersions.lastModified(PERSON)))
+            return null;
+        return peopleService.pick(prefix, page);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<PersonDetails> show(@PathVariable("id") int id, WebRequest request) {
+        // the reader and the loans, the overdue flags as on the reader page (see PeopleController.show)
+        String etag = catalogueVersions.etag(PERSON, BOOK) + "-"
+                + System.currentTimeMillis() / PeopleController.OVERDUE_PRECISION_MILLIS;
+        if (request.checkNotModified(etag))
+            return null;
+        return details(id);
+    }
+
+    private ResponseEntity<PersonDetails> details(int id) {
+        Person person = peopleService.show(id);
+        if (person == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(personMapper.toPersonDetails(person, peopleService.showPersonBooks(id)));
+    }
+
+    // checkouts and returns of the reader, newest first, see BooksApiController.history
+    @GetMapping("/{id}/history")
+    public ResponseEntity<?> history(@PathVariable("id") int id,
+                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                     WebRequest request) {
+        if (request.checkNotModified(catalogueVersions.etag(BOOK, PERSON), catalogueVersions.lastModified(BOOK, PERSON)))
+            return null;
+        if (cursor != null && !LoanLedger.isValidCursor(cursor))
+            return ResponseEntity.badRequest().body(List.of(new ValidationError("cursor", "Invalid cursor")));
+        return ResponseEntity.ok(peopleService.history(id, cursor));
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody @Valid PersonDTO personDTO, BindingResult bindingResult) {
+        personDTO.setId(0);
+        personValidator.validate(personDTO, bindingResult);
+        if (bindingResult.hasErrors())
+            return ResponseEntity.badRequest().body(ValidationError.of(bindingResult));
+
+        Person person = personMapper.toPerson(personDTO);
+        peopleService.save(person);
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").build(person.getId()))
+                .body(personMapper.toPersonDetails(person, List.of()));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> update(@PathVariable("id") int id, @RequestBody @Valid PersonDTO personDTO,
+                                    BindingResult bindingResult) {
+        // the email may stay the same, it is then taken by this reader
+        personDTO.setId(id);
+        personValidator.validate(personDTO, bindingResult);
+        if (bindingResult.hasErrors())
+            return ResponseEntity.badRequest().body(ValidationError.of(bindingResult));
+        if (peopleService.show(id) == null)
+            return ResponseEntity.notFound().build();
+
+        peopleService.update(id, personMapper.toPerson(personDTO));
+        return details(id);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable("id") int id) {
+        peopleService.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+}
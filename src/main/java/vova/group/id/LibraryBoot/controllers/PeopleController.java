@@ -1,31 +1,46 @@
 package vova.group.id.LibraryBoot.controllers;
 
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
 import vova.group.id.LibraryBoot.dto.PersonDTO;
+import vova.group.id.LibraryBoot.dto.ReaderOption;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.util.PersonMapper;
 import vova.group.id.LibraryBoot.util.PersonValidator;
 
+import java.time.Duration;
+import java.util.List;
+
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.BOOK;
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.PERSON;
+
 
 @Controller
 @RequestMapping("/library/people")
 public class PeopleController {
 
+    // a loan turns overdue with time alone, the reader page is rendered again at least this often
+    static final long OVERDUE_PRECISION_MILLIS = Duration.ofMinutes(1).toMillis();
+
     private final PeopleService peopleService;
     private final PersonValidator personValidator;
-    private final ModelMapper modelMapper;
+    private final PersonMapper personMapper;
+    private final CatalogueVersions catalogueVersions;
 
     @Autowired
-    public PeopleController(PeopleService peopleService, PersonValidator personValidator, ModelMapper modelMapper) {
+    public PeopleController(PeopleService peopleService, PersonValidator personValidator, PersonMapper personMapper,
+                            CatalogueVersions catalogueVersions) {
         this.peopleService = peopleService;
         this.personValidator = personValidator;
-        this.modelMapper = modelMapper;
+        this.personMapper = personMapper;
+        this.catalogueVersions = catalogueVersions;
     }
 
     @GetMapping()
@@ -34,8 +49,21 @@ public class PeopleController {
         return "people/index";
     }
 
+    // JSON for the reader picker of the book page
+    @GetMapping("/picker")
+    @ResponseBody
+    public List<ReaderOption> picker(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+                                     @RequestParam(value = "page", defaultValue = "0") int page) {
+        return peopleService.pick(prefix, page);
+    }
+
     @GetMapping("/{id}")
-    public String show(@PathVariable("id") int id, Model model) {
+    public String show(@PathVariable("id") int id, Model model, WebRequest request) {
+        // the reader and the loans, no Last-Modified as the overdue marks are not covered by it
+        String etag = catalogueVersions.etag(PERSON, BOOK) + "-" + System.currentTimeMillis() / OVERDUE_PRECISION_MILLIS;
+        if (request.checkNotModified(etag))
+            return null;
+
         model.addAttribute("person", peopleService.show(id));
         model.addAttribute("personBooks", peopleService.showPersonBooks(id));
 
@@ -57,14 +85,14 @@ public class PeopleController {
             return "people/new";
         }
 
-        peopleService.save(convertPersonDTOToPerson(personDTO));
+        peopleService.save(personMapper.toPerson(personDTO));
         return "redirect:/library/people";
     }
 
     @GetMapping("/{id}/edit")
     public String edit(Model model, @PathVariable("id") int id) {
         Person personFromDB = peopleService.show(id);
-        model.addAttribute("personDTO", convertPersonToPersonDTO(personFromDB));
+        model.addAttribute("personDTO", personMapper.toPersonDTO(personFromDB));
         return "people/edit";
     }
 
@@ -77,22 +105,10 @@ public class PeopleController {
             return "people/edit";
         }
 
-        peopleService.update(id, convertPersonDTOToPerson(personDTO));
+        peopleService.update(id, personMapper.toPerson(personDTO));
         return "redirect:/library/people/" + id;
     }
 
-    public Person convertPersonDTOToPerson(PersonDTO personDTO) {
-        Person person = modelMapper.map(personDTO, Person.class);
-        person.setBirthYear(Integer.parseInt(personDTO.getBirthYear()));
-        return person;
-    }
-
-    public PersonDTO convertPersonToPersonDTO(Person person) {
-        PersonDTO personDTO = modelMapper.map(person, PersonDTO.class);
-        personDTO.setBirthYear(String.valueOf(person.getBirthYear()));
-        return personDTO;
-    }
-
     @DeleteMapping(("/{id}"))
     public String delate(@PathVariable("id") int id) {
         peopleService.delete(id);
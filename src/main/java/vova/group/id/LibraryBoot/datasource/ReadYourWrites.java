@@ -0,0 +1,41 @@
+package vova.group.id.LibraryBoot.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends the read-only transactions of the current thread to the primary instead of a replica, for a client
+ * that has just written and must see its change before the replicas have it.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static boolean isActive() {
+        return PRIMARY.get() != null;
+    }
+
+    // false when the thread already reads from the primary, end() is then left to the outer caller
+    public static boolean begin() {
+        if (isActive())
+            return false;
+        PRIMARY.set(Boolean.TRUE);
+        return true;
+    }
+
+    public static void end() {
+        PRIMARY.remove();
+    }
+
+    public static <T> T fromPrimary(Supplier<T> work) {
+        boolean started = begin();
+        try {
+            return work.get();
+        } finally {
+            if (started)
+                end();
+        }
+    }
+}
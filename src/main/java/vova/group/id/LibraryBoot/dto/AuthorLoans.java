@@ -0,0 +1,18 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+/**
+ * An author of the top list on the main page with the number of their books on loan.
+ */
+@Getter
+public class AuthorLoans {
+
+    private final String author;
+    private final int loans;
+
+    public AuthorLoans(String author, int loans) {
+        this.author = author;
+        this.loans = loans;
+    }
+}
@@ -23,6 +23,9 @@ public class BookDTO {
     @Pattern(regexp = "\\d{4}", message = "Enter a valid 4-digit year")
     private String year;
 
+    // version of the book the form was opened with
+    private int version;
+
     public BookDTO() {
     }
 
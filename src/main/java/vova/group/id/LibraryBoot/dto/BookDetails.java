@@ -0,0 +1,34 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * A book in the JSON API, with its reader flattened to id and name. The reader fields are null for a free book.
+ * The version has to be sent back with an update.
+ */
+@Getter
+public class BookDetails {
+
+    private final int id;
+    private final String title;
+    private final String author;
+    private final int year;
+    private final int version;
+    private final Integer readerId;
+    private final String readerName;
+    private final Date takenAt;
+
+    public BookDetails(int id, String title, String author, int year, int version,
+                       Integer readerId, String readerName, Date takenAt) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.year = year;
+        this.version = version;
+        this.readerId = readerId;
+        this.readerName = readerName;
+        this.takenAt = takenAt;
+    }
+}
@@ -0,0 +1,22 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One book of a bulk checkout and the reader who takes it.
+ */
+@Getter
+@Setter
+public class BookLoanRequest {
+    private int bookId;
+    private int readerId;
+
+    public BookLoanRequest() {
+    }
+
+    public BookLoanRequest(int bookId, int readerId) {
+        this.bookId = bookId;
+        this.readerId = readerId;
+    }
+}
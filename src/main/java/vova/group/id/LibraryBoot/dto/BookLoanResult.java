@@ -0,0 +1,22 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+/**
+ * Outcome of one book of a bulk checkout or return, in the order of the request.
+ */
+@Getter
+public class BookLoanResult {
+
+    public enum Status {
+        DONE, ALREADY_TAKEN, ALREADY_FREE, BOOK_NOT_FOUND, READER_NOT_FOUND
+    }
+
+    private final int bookId;
+    private final Status status;
+
+    public BookLoanResult(int bookId, Status status) {
+        this.bookId = bookId;
+        this.status = status;
+    }
+}
@@ -0,0 +1,14 @@
+package vova.group.id.LibraryBoot.dto;
+
+/**
+ * Read-only view of a book for the lists, selected column by column instead of as a managed entity.
+ */
+public interface BookSummary {
+    int getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    int getYear();
+}
@@ -0,0 +1,27 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The state of the library shown on the main page, read from the loan counters.
+ */
+@Getter
+public class LibraryStatistics {
+
+    private final long books;
+    private final long booksOnLoan;
+    private final long overdueBooks;
+    private final List<ReaderLoans> topReaders;
+    private final List<AuthorLoans> topAuthors;
+
+    public LibraryStatistics(long books, long booksOnLoan, long overdueBooks,
+                             List<ReaderLoans> topReaders, List<AuthorLoans> topAuthors) {
+        this.books = books;
+        this.booksOnLoan = booksOnLoan;
+        this.overdueBooks = overdueBooks;
+        this.topReaders = topReaders;
+        this.topAuthors = topAuthors;
+    }
+}
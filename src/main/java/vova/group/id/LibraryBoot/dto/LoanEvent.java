@@ -0,0 +1,38 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * A checkout or a return from the loan history. The title and the reader's name are null once the book or
+ * the reader has been deleted, the history keeps their ids.
+ */
+@Getter
+public class LoanEvent {
+
+    public enum Kind {
+        CHECKOUT, RETURN
+    }
+
+    private final long id;
+    private final Kind kind;
+    private final Date occurredAt;
+    private final Date takenAt;
+    private final int bookId;
+    private final String title;
+    private final int readerId;
+    private final String readerName;
+
+    public LoanEvent(long id, Kind kind, Date occurredAt, Date takenAt, int bookId, String title,
+                     int readerId, String readerName) {
+        this.id = id;
+        this.kind = kind;
+        this.occurredAt = occurredAt;
+        this.takenAt = takenAt;
+        this.bookId = bookId;
+        this.title = title;
+        this.readerId = readerId;
+        this.readerName = readerName;
+    }
+}
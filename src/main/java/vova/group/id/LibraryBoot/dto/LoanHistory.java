@@ -0,0 +1,20 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of the loan history, newest first. nextCursor asks for the older events, null on the last page.
+ */
+@Getter
+public class LoanHistory {
+
+    private final List<LoanEvent> events;
+    private final String nextCursor;
+
+    public LoanHistory(List<LoanEvent> events, String nextCursor) {
+        this.events = events;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,20 @@
+package vova.group.id.LibraryBoot.dto;
+
+import java.util.Date;
+
+/**
+ * A book on the reader page, the overdue flag is computed by the database.
+ */
+public interface LoanSummary {
+    int getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    int getYear();
+
+    Date getTakenAt();
+
+    boolean getExpired();
+}
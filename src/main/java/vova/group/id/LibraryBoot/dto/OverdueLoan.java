@@ -0,0 +1,20 @@
+package vova.group.id.LibraryBoot.dto;
+
+import java.util.Date;
+
+/**
+ * A row of the overdue loans page: the book and who holds it.
+ */
+public interface OverdueLoan {
+    int getBookId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    Date getTakenAt();
+
+    int getReaderId();
+
+    String getReaderName();
+}
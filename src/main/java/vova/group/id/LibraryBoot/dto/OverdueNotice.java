@@ -0,0 +1,8 @@
+package vova.group.id.LibraryBoot.dto;
+
+/**
+ * An overdue loan with what a reminder to the reader needs.
+ */
+public interface OverdueNotice extends OverdueLoan {
+    String getEmail();
+}
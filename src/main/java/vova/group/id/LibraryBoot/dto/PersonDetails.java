@@ -0,0 +1,26 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A reader in the JSON API together with the books they hold.
+ */
+@Getter
+public class PersonDetails {
+
+    private final int id;
+    private final String fullName;
+    private final int birthYear;
+    private final String email;
+    private final List<LoanSummary> books;
+
+    public PersonDetails(int id, String fullName, int birthYear, String email, List<LoanSummary> books) {
+        this.id = id;
+        this.fullName = fullName;
+        this.birthYear = birthYear;
+        this.email = email;
+        this.books = books;
+    }
+}
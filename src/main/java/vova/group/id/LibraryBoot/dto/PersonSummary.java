@@ -0,0 +1,12 @@
+package vova.group.id.LibraryBoot.dto;
+
+/**
+ * Read-only view of a reader for the lists, selected column by column instead of as a managed entity.
+ */
+public interface PersonSummary {
+    int getId();
+
+    String getFullName();
+
+    int getBirthYear();
+}
@@ -0,0 +1,20 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+
+/**
+ * A reader of the top list on the main page with the number of books they have.
+ */
+@Getter
+public class ReaderLoans {
+
+    private final int readerId;
+    private final String fullName;
+    private final int loans;
+
+    public ReaderLoans(int readerId, String fullName, int loans) {
+        this.readerId = readerId;
+        this.fullName = fullName;
+        this.loans = loans;
+    }
+}
@@ -0,0 +1,10 @@
+package vova.group.id.LibraryBoot.dto;
+
+/**
+ * One entry of the reader picker on the book page.
+ */
+public interface ReaderOption {
+    int getId();
+
+    String getFullName();
+}
@@ -0,0 +1,29 @@
+package vova.group.id.LibraryBoot.dto;
+
+import lombok.Getter;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+
+import java.util.List;
+
+/**
+ * Why a request of the JSON API was rejected, the field is null when the error is not about one field.
+ */
+@Getter
+public class ValidationError {
+
+    private final String field;
+    private final String message;
+
+    public ValidationError(String field, String message) {
+        this.field = field;
+        this.message = message;
+    }
+
+    public static List<ValidationError> of(BindingResult bindingResult) {
+        return bindingResult.getAllErrors().stream()
+                .map(error -> new ValidationError(error instanceof FieldError fieldError ? fieldError.getField() : null,
+                        error.getDefaultMessage()))
+                .toList();
+    }
+}
@@ -0,0 +1,33 @@
+package vova.group.id.LibraryBoot.exporting;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Getter;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+
+/**
+ * One line of the catalogue export: the book and, when it is taken, its reader and the loan date.
+ */
+@Getter
+@JsonPropertyOrder({"id", "title", "author", "year", "readerId", "readerName", "takenAt"})
+public class BookExportRow {
+
+    private final int id;
+    private final String title;
+    private final String author;
+    private final int year;
+    private final Integer readerId;
+    private final String readerName;
+    private final String takenAt;
+
+    public BookExportRow(Book book) {
+        Person reader = book.getReader();
+        this.id = book.getId();
+        this.title = book.getTitle();
+        this.author = book.getAuthor();
+        this.year = book.getYear();
+        this.readerId = reader == null ? null : reader.getId();
+        this.readerName = reader == null ? null : reader.getFullName();
+        this.takenAt = book.getTakenAt() == null ? null : book.getTakenAt().toInstant().toString();
+    }
+}
@@ -0,0 +1,66 @@
+package vova.group.id.LibraryBoot.exporting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import vova.group.id.LibraryBoot.services.BooksService;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the whole catalogue to a stream, one line per book, while the books are read from the database.
+ * Nothing is collected on the way, a client that stops reading stops the export.
+ */
+@Component
+public class BookExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(BookExporter.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BooksService booksService;
+    private final ObjectMapper jsonMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    @Autowired
+    public BookExporter(BooksService booksService, ObjectMapper jsonMapper) {
+        this.booksService = booksService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public long export(OutputStream output, ExportFormat format) throws IOException {
+        long start = System.currentTimeMillis();
+        OutputStream buffered = new BufferedOutputStream(output, BUFFER_SIZE);
+        long books;
+        try (SequenceWriter writer = writer(format, buffered)) {
+            books = booksService.export(book -> {
+                try {
+                    writer.write(new BookExportRow(book));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            // the separator only goes between the lines
+            if (format == ExportFormat.NDJSON && books > 0) {
+                writer.flush();
+                buffered.write('\n');
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Exported {} books as {} in {} ms", books, format, System.currentTimeMillis() - start);
+        return books;
+    }
+
+    private SequenceWriter writer(ExportFormat format, OutputStream output) throws IOException {
+        if (format == ExportFormat.CSV)
+            return csvMapper.writer(csvMapper.schemaFor(BookExportRow.class).withHeader()).writeValues(output);
+        return jsonMapper.writerFor(BookExportRow.class).withRootValueSeparator("\n").writeValues(output);
+    }
+}
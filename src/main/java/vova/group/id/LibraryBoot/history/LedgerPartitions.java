@@ -0,0 +1,65 @@
+package vova.group.id.LibraryBoot.history;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Creates the monthly partitions of loan_event on PostgreSQL before they are needed: at startup and then daily,
+ * library.history.months-ahead months from now. loan_event has no default partition, a loan in a month without
+ * one would fail. Nothing to do on H2, its loan_event is a plain table.
+ */
+@Component
+public class LedgerPartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerPartitions.class);
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+    private final int monthsAhead;
+
+    @Autowired
+    public LedgerPartitions(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                            @Value("${library.history.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgres = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        this.monthsAhead = monthsAhead;
+    }
+
+    public static String partitionName(YearMonth month) {
+        return "loan_event_" + month.format(SUFFIX);
+    }
+
+    @Scheduled(fixedDelayString = "${library.history.partition-check:1d}")
+    public void createMonthsAhead() {
+        if (!postgres)
+            return;
+        YearMonth now = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++)
+            create(now.plusMonths(i));
+    }
+
+    // CREATE TABLE ... PARTITION OF locks the whole ledger for a moment, so existing months are skipped first
+    private void create(YearMonth month) {
+        String name = partitionName(month);
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name))
+            return;
+        LocalDate from = month.atDay(1);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF loan_event " +
+                "FOR VALUES FROM ('" + from + "') TO ('" + from.plusMonths(1) + "')");
+        log.info("Created partition {} of loan_event", name);
+    }
+}
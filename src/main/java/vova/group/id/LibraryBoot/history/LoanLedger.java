@@ -0,0 +1,152 @@
+package vova.group.id.LibraryBoot.history;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vova.group.id.LibraryBoot.dto.LoanEvent;
+import vova.group.id.LibraryBoot.dto.LoanHistory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The loan history, a row in loan_event for every checkout and return (see the V5 migrations). The services
+ * report the loans that start and end; the rows of a transaction go out as one JDBC batch just before it
+ * commits, so a rolled back checkout leaves nothing behind. Rows are only ever inserted.
+ * The history is read a page at a time, newest first, through the indexes on (book_id, occurred_at, id)
+ * and (person_id, occurred_at, id). The cursor of the next page bounds occurred_at, so on PostgreSQL
+ * the months after it are not read at all.
+ */
+@Component
+public class LoanLedger {
+
+    public static final int HISTORY_PAGE_SIZE = 50;
+
+    private static final String INSERT = "INSERT INTO loan_event (kind, occurred_at, book_id, person_id, taken_at) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String READER_LOANS = "SELECT id, taken_at FROM Book WHERE person_id = ?";
+    private static final String SELECT = "SELECT e.id, e.kind, e.occurred_at, e.taken_at, e.book_id, b.title, " +
+            "e.person_id, p.full_name FROM loan_event e " +
+            "LEFT JOIN Book b ON b.id = e.book_id LEFT JOIN Person p ON p.id = e.person_id ";
+    private static final String OLDER = " AND e.occurred_at <= ? AND (e.occurred_at < ? OR e.id < ?)";
+    private static final String NEWEST_FIRST = " ORDER BY e.occurred_at DESC, e.id DESC LIMIT ?";
+
+    private static final RowMapper<LoanEvent> EVENT = (row, number) -> new LoanEvent(row.getLong(1),
+            LoanEvent.Kind.valueOf(row.getString(2)), row.getTimestamp(3), row.getTimestamp(4),
+            row.getInt(5), row.getString(6), row.getInt(7), row.getString(8));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LoanLedger(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void checkedOut(int bookId, int readerId, Date takenAt) {
+        append(LoanEvent.Kind.CHECKOUT, takenAt, bookId, readerId, takenAt);
+    }
+
+    public void returned(int bookId, int readerId, Date takenAt, Date returnedAt) {
+        append(LoanEvent.Kind.RETURN, returnedAt, bookId, readerId, takenAt != null ? takenAt : returnedAt);
+    }
+
+    // called before the reader is deleted, ON DELETE SET NULL ends the reader's loans
+    public void readerRemoved(int readerId) {
+        Date now = new Date();
+        jdbcTemplate.query(READER_LOANS, row -> {
+            returned(row.getInt(1), readerId, row.getTimestamp(2), now);
+        }, readerId);
+    }
+
+    public LoanHistory bookHistory(int bookId, String cursor) {
+        return page("WHERE e.book_id = ?", bookId, cursor);
+    }
+
+    public LoanHistory readerHistory(int readerId, String cursor) {
+        return page("WHERE e.person_id = ?", readerId, cursor);
+    }
+
+    private LoanHistory page(String where, int id, String cursor) {
+        List<LoanEvent> events;
+        if (cursor == null || cursor.isEmpty()) {
+            events = jdbcTemplate.query(SELECT + where + NEWEST_FIRST, EVENT, id, HISTORY_PAGE_SIZE + 1);
+        } else {
+            Cursor before = Cursor.decode(cursor);
+            events = jdbcTemplate.query(SELECT + where + OLDER + NEWEST_FIRST, EVENT, id,
+                    before.occurredAt(), before.occurredAt(), before.id(), HISTORY_PAGE_SIZE + 1);
+        }
+
+        if (events.size() <= HISTORY_PAGE_SIZE)
+            return new LoanHistory(events, null);
+        events = events.subList(0, HISTORY_PAGE_SIZE);
+        LoanEvent last = events.getLast();
+        return new LoanHistory(events, new Cursor(new Timestamp(last.getOccurredAt().getTime()), last.getId()).encode());
+    }
+
+    public static boolean isValidCursor(String cursor) {
+        try {
+            Cursor.decode(cursor);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // the events of the current transaction, inserted before it commits
+    private void append(LoanEvent.Kind kind, Date occurredAt, int bookId, int readerId, Date takenAt) {
+        events().add(new Object[]{kind.name(), new Timestamp(occurredAt.getTime()), bookId, readerId,
+                new Timestamp(takenAt.getTime())});
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> events() {
+        List<Object[]> events = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (events != null)
+            return events;
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("Loan events are appended inside a transaction");
+
+        List<Object[]> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                jdbcTemplate.batchUpdate(INSERT, created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LoanLedger.this);
+            }
+        });
+        return created;
+    }
+
+    // the last event of a page, the next page starts after it
+    private record Cursor(Timestamp occurredAt, long id) {
+
+        String encode() {
+            String key = occurredAt.getTime() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+                if (parts.length != 2)
+                    throw new IllegalArgumentException("Invalid cursor");
+                return new Cursor(new Timestamp(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException and bad Base64 both end up here
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+    }
+}
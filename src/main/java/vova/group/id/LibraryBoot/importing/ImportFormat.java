@@ -0,0 +1,23 @@
+package vova.group.id.LibraryBoot.importing;
+
+import java.util.Locale;
+
+/**
+ * Formats of the bulk import, chosen by the Content-Type of the upload.
+ * CSV needs a header row with the property names of BookDTO or PersonDTO,
+ * JSON is an array of objects with the same properties.
+ */
+public enum ImportFormat {
+    CSV, JSON;
+
+    public static ImportFormat of(String contentType) {
+        if (contentType != null) {
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("text/csv"))
+                return CSV;
+            if (type.startsWith("application/json"))
+                return JSON;
+        }
+        throw new IllegalArgumentException("Unsupported import format " + contentType);
+    }
+}
@@ -0,0 +1,57 @@
+package vova.group.id.LibraryBoot.importing;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Progress and outcome of one bulk import. It is updated by the importing thread
+ * and can be read at any time from /library/admin/import.
+ */
+@Getter
+public class ImportReport {
+
+    // enough to fix a file, the rest of the rejected rows are only counted
+    static final int MAX_ERRORS = 100;
+
+    private final String kind;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long rowsRead;
+    private volatile long imported;
+    private volatile long rejected;
+    private final List<RowError> errors = new CopyOnWriteArrayList<>();
+    private volatile boolean finished;
+    private volatile String failure;
+    private volatile long millis;
+
+    public ImportReport(String kind) {
+        this.kind = kind;
+    }
+
+    public long getRowsPerSecond() {
+        long elapsed = finished ? millis : System.currentTimeMillis() - startedAt;
+        return rowsRead * 1000 / Math.max(elapsed, 1);
+    }
+
+    void rowRead() {
+        rowsRead++;
+    }
+
+    void imported(int rows) {
+        imported += rows;
+    }
+
+    void reject(List<RowError> rowErrors) {
+        rejected++;
+        for (RowError error : rowErrors)
+            if (errors.size() < MAX_ERRORS)
+                errors.add(error);
+    }
+
+    void finish(String failure) {
+        this.failure = failure;
+        millis = System.currentTimeMillis() - startedAt;
+        finished = true;
+    }
+}
@@ -0,0 +1,249 @@
+package vova.group.id.LibraryBoot.importing;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SimpleErrors;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.PersonDTO;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.repositories.PeopleRepository;
+import vova.group.id.LibraryBoot.search.BookSearchIndex;
+import vova.group.id.LibraryBoot.statistics.LoanCounters;
+import vova.group.id.LibraryBoot.util.BookValidator;
+import vova.group.id.LibraryBoot.util.PersonValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Bulk import of books and readers from CSV or JSON. The file is read one row at a time and written
+ * in chunks, each chunk is one transaction with one JDBC batch of inserts, so memory stays flat
+ * however big the file is. Rows are checked by the same rules as the forms; the email uniqueness
+ * of readers is checked for a whole chunk with one query. Ids are taken from the entity sequences
+ * a block at a time. Only one import runs at a time.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+    private static final int CHUNK_SIZE = 1000;
+    private static final int LOG_EVERY_ROWS = 100_000;
+
+    private static final String INSERT_BOOK = "INSERT INTO Book (id, title, author, book_year) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_PERSON = "INSERT INTO Person (id, full_name, birth_year, email) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PeopleRepository peopleRepository;
+    private final SpringValidatorAdapter constraintValidator;
+    private final BookValidator bookValidator;
+    private final PersonValidator personValidator;
+    private final BookSearchIndex searchIndex;
+    private final LibraryCache libraryCache;
+    private final CatalogueVersions catalogueVersions;
+    private final LoanCounters loanCounters;
+    private final ObjectMapper jsonMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final SequenceSupport sequenceSupport;
+
+    private final ReentrantLock importLock = new ReentrantLock();
+    private volatile ImportReport lastReport;
+
+    @Autowired
+    public ImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                         PeopleRepository peopleRepository, jakarta.validation.Validator constraintValidator,
+                         BookValidator bookValidator, PersonValidator personValidator,
+                         BookSearchIndex searchIndex, LibraryCache libraryCache, CatalogueVersions catalogueVersions,
+                         LoanCounters loanCounters, ObjectMapper jsonMapper, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.peopleRepository = peopleRepository;
+        this.constraintValidator = new SpringValidatorAdapter(constraintValidator);
+        this.bookValidator = bookValidator;
+        this.personValidator = personValidator;
+        this.searchIndex = searchIndex;
+        this.libraryCache = libraryCache;
+        this.catalogueVersions = catalogueVersions;
+        this.loanCounters = loanCounters;
+        this.jsonMapper = jsonMapper;
+        this.sequenceSupport = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport();
+    }
+
+    // the running import, or the last finished one
+    public Optional<ImportReport> lastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    public ImportReport importBooks(InputStream input, ImportFormat format) {
+        ImportReport report = importRows("books", input, format, BookDTO.class,
+                bookValidator::validate, this::insertBooks);
+        if (report.getImported() > 0 && searchIndex.isEnabled())
+            searchIndex.rebuild();
+        return report;
+    }
+
+    public ImportReport importPeople(InputStream input, ImportFormat format) {
+        ImportReport report = importRows("people", input, format, PersonDTO.class,
+                personValidator::validateBirthYear, this::insertPeople);
+        if (report.getImported() > 0)
+            libraryCache.evictPeopleQueries();
+        return report;
+    }
+
+    private <T> ImportReport importRows(String kind, InputStream input, ImportFormat format, Class<T> type,
+                                        BiConsumer<T, Errors> rowValidator,
+                                        BiConsumer<List<Row<T>>, ImportReport> chunkWriter) {
+        ImportReport report = new ImportReport(kind);
+        if (!importLock.tryLock()) {
+            report.finish("Another import is running");
+            return report;
+        }
+        lastReport = report;
+
+        try (MappingIterator<T> rows = reader(format, type).readValues(input)) {
+            List<Row<T>> chunk = new ArrayList<>(CHUNK_SIZE);
+            long number = 0;
+            while (rows.hasNextValue()) {
+                T value = rows.nextValue();
+                number++;
+                report.rowRead();
+
+                Errors errors = new SimpleErrors(value, kind);
+                constraintValidator.validate(value, errors);
+                rowValidator.accept(value, errors);
+                if (errors.hasErrors()) {
+                    long row = number;
+                    report.reject(errors.getFieldErrors().stream()
+                            .map(error -> new RowError(row, error.getField(), error.getDefaultMessage()))
+                            .toList());
+                } else {
+                    chunk.add(new Row<>(number, value));
+                }
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    chunkWriter.accept(chunk, report);
+                    chunk.clear();
+                }
+                if (number % LOG_EVERY_ROWS == 0)
+                    log.info("Importing {}: {} rows read, {} imported, {} rejected", kind, number,
+                            report.getImported(), report.getRejected());
+            }
+            if (!chunk.isEmpty())
+                chunkWriter.accept(chunk, report);
+            report.finish(null);
+        } catch (IOException | RuntimeException e) {
+            // the chunks before the broken row stay imported
+            log.warn("Import of {} stopped after {} rows", kind, report.getRowsRead(), e);
+            report.finish(e.getMessage());
+        } finally {
+            importLock.unlock();
+        }
+
+        log.info("Imported {}: {} of {} rows in {} ms, {} rejected", kind, report.getImported(),
+                report.getRowsRead(), report.getMillis(), report.getRejected());
+        return report;
+    }
+
+    private ObjectReader reader(ImportFormat format, Class<?> type) {
+        ObjectReader reader = format == ImportFormat.CSV
+                ? csvMapper.readerFor(type).with(CsvSchema.emptySchema().withHeader())
+                : jsonMapper.readerFor(type);
+        return reader.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    private void insertBooks(List<Row<BookDTO>> chunk, ImportReport report) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Iterator<Integer> ids = nextIds(Book.ID_SEQUENCE, Book.ID_ALLOCATION_SIZE, chunk.size());
+            jdbcTemplate.batchUpdate(INSERT_BOOK, chunk, chunk.size(), (statement, row) -> {
+                statement.setInt(1, ids.next());
+                statement.setString(2, row.value().getTitle());
+                statement.setString(3, row.value().getAuthor());
+                statement.setInt(4, Integer.parseInt(row.value().getYear()));
+            });
+            loanCounters.booksAdded(chunk.size());
+        });
+        // every committed chunk shows on the pages at once
+        catalogueVersions.changed(CatalogueVersions.Table.BOOK);
+        report.imported(chunk.size());
+    }
+
+    private void insertPeople(List<Row<PersonDTO>> chunk, ImportReport report) {
+        List<Row<PersonDTO>> duplicates;
+        try {
+            duplicates = insertNewPeople(chunk);
+        } catch (DuplicateKeyException e) {
+            // a reader with one of the emails was added meanwhile, the second check sees it
+            duplicates = insertNewPeople(chunk);
+        }
+
+        catalogueVersions.changed(CatalogueVersions.Table.PERSON);
+        for (Row<PersonDTO> row : duplicates)
+            report.reject(List.of(new RowError(row.number(), "email", PersonValidator.EMAIL_TAKEN_MESSAGE)));
+        report.imported(chunk.size() - duplicates.size());
+    }
+
+    // inserts the rows whose email is free, both in the database and earlier in the chunk
+    private List<Row<PersonDTO>> insertNewPeople(List<Row<PersonDTO>> chunk) {
+        return transactionTemplate.execute(status -> {
+            Set<String> takenEmails = new HashSet<>(peopleRepository.findExistingEmails(
+                    chunk.stream().map(row -> row.value().getEmail()).toList()));
+
+            List<Row<PersonDTO>> newPeople = new ArrayList<>(chunk.size());
+            List<Row<PersonDTO>> duplicates = new ArrayList<>();
+            for (Row<PersonDTO> row : chunk) {
+                if (takenEmails.add(row.value().getEmail()))
+                    newPeople.add(row);
+                else
+                    duplicates.add(row);
+            }
+
+            Iterator<Integer> ids = nextIds(Person.ID_SEQUENCE, Person.ID_ALLOCATION_SIZE, newPeople.size());
+            jdbcTemplate.batchUpdate(INSERT_PERSON, newPeople, newPeople.size(), (statement, row) -> {
+                statement.setInt(1, ids.next());
+                statement.setString(2, row.value().getFullName());
+                statement.setInt(3, Integer.parseInt(row.value().getBirthYear()));
+                statement.setString(4, row.value().getEmail());
+            });
+            return duplicates;
+        });
+    }
+
+    // whole blocks of the entity's sequence, read the way Hibernate's pooled-lo optimizer reads them,
+    // so imported rows and rows saved through the entities never get the same id
+    private Iterator<Integer> nextIds(String sequence, int blockSize, int count) {
+        String nextValue = sequenceSupport.getSequenceNextValString(sequence);
+        List<Integer> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int low = jdbcTemplate.queryForObject(nextValue, Integer.class);
+            for (int id = low; id < low + blockSize && ids.size() < count; id++)
+                ids.add(id);
+        }
+        return ids.iterator();
+    }
+
+    private record Row<T>(long number, T value) {
+    }
+}
@@ -0,0 +1,20 @@
+package vova.group.id.LibraryBoot.importing;
+
+import lombok.Getter;
+
+/**
+ * Why one row of an import was rejected. Rows are counted from 1, without the CSV header.
+ */
+@Getter
+public class RowError {
+
+    private final long row;
+    private final String field;
+    private final String message;
+
+    public RowError(long row, String field, String message) {
+        this.row = row;
+        this.field = field;
+        this.message = message;
+    }
+}
@@ -0,0 +1,34 @@
+package vova.group.id.LibraryBoot.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between start() and stop().
+ * Installed as the statement inspector of the session factory by MetricsConfig; statements sent with
+ * plain JDBC (the bulk import) are not seen.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    public void start() {
+        count.set(new int[1]);
+    }
+
+    // the number of statements since start(), or -1 when nothing was started on this thread
+    public int stop() {
+        int[] statements = count.get();
+        count.remove();
+        return statements == null ? -1 : statements[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] statements = count.get();
+        if (statements != null)
+            statements[0]++;
+        return sql;
+    }
+}
@@ -6,18 +6,26 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Date;
 
 @Entity
 @Table(name = "Book")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 @Getter
 @Setter
 public class Book {
 
+    // ids come in blocks of ID_ALLOCATION_SIZE, so a stack of new rows is inserted in one JDBC batch
+    public static final String ID_SEQUENCE = "book_id_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private int id;
 
     @NotEmpty(message = "Enter book title")
@@ -34,7 +42,7 @@ public class Book {
     @Column(name = "book_year")
     private int year;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "person_id", referencedColumnName = "id")
     private Person reader;
 
@@ -42,8 +50,10 @@ public class Book {
     @Temporal(TemporalType.TIMESTAMP)
     private Date takenAt;
 
-    @Transient
-    private Boolean expired;
+    // bumped by every change, including checkout and return, so a stale edit form is rejected
+    @Version
+    @Column(name = "version")
+    private int version;
 
     public Book () {
 
@@ -0,0 +1,62 @@
+package vova.group.id.LibraryBoot.models;
+
+import lombok.Getter;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a book in the catalogue for keyset (seek) pagination.
+ * The client only sees the encoded token, the (year, id) key stays opaque.
+ */
+@Getter
+public class BookCursor {
+
+    private final boolean backward;
+    private final int year;
+    private final int id;
+
+    public BookCursor(boolean backward, int year, int id) {
+        this.backward = backward;
+        this.year = year;
+        this.id = id;
+    }
+
+    // cursor pointing to the books after the given one
+    public static BookCursor after(BookSummary book) {
+        return new BookCursor(false, book.getYear(), book.getId());
+    }
+
+    // cursor pointing to the books before the given one
+    public static BookCursor before(BookSummary book) {
+        return new BookCursor(true, book.getYear(), book.getId());
+    }
+
+    public String encode() {
+        String key = (backward ? "p" : "n") + ":" + year + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String token) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = key.split(":");
+            if (parts.length != 3 || !(parts[0].equals("p") || parts[0].equals("n")))
+                throw new IllegalArgumentException("Invalid cursor");
+            return new BookCursor(parts[0].equals("p"), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and bad Base64 both end up here
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public static boolean isValid(String token) {
+        try {
+            decode(token);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package vova.group.id.LibraryBoot.models;
 
 
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.Pattern;
 import lombok.Getter;
 import lombok.Setter;
@@ -18,6 +19,9 @@ public class BookPageForm {
 
     private Boolean sortByYear;
 
+    // opaque keyset position, used when no page number is given
+    private String cursor;
+
     public BookPageForm() {
     }
 
@@ -26,4 +30,15 @@ public class BookPageForm {
         this.booksPerPage = booksPerPage;
         this.sortByYear = sortByYear;
     }
+
+    public BookPageForm(String booksPerPage, Boolean sortByYear, String cursor) {
+        this.booksPerPage = booksPerPage;
+        this.sortByYear = sortByYear;
+        this.cursor = cursor;
+    }
+
+    @AssertTrue(message = "Page link is broken, please start from the first page")
+    public boolean isCursorValid() {
+        return cursor == null || cursor.isEmpty() || BookCursor.isValid(cursor);
+    }
 }
@@ -0,0 +1,28 @@
+package vova.group.id.LibraryBoot.models;
+
+import lombok.Getter;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+
+import java.util.List;
+
+/**
+ * One page of the books list together with the cursors of the neighbour pages.
+ * A cursor is null when there is no page in that direction.
+ */
+@Getter
+public class BookSlice {
+
+    private final List<BookSummary> books;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public BookSlice(List<BookSummary> books, String nextCursor, String prevCursor) {
+        this.books = books;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public BookSlice(List<BookSummary> books) {
+        this(books, null, null);
+    }
+}
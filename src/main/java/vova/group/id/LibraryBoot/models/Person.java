@@ -4,18 +4,26 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
 @Table(name = "Person")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
 @Getter
 @Setter
 public class Person {
 
+    // ids come in blocks of ID_ALLOCATION_SIZE, so a stack of new rows is inserted in one JDBC batch
+    public static final String ID_SEQUENCE = "person_id_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private int id;
 
     @NotEmpty(message = "Enter full name")
@@ -34,7 +42,9 @@ public class Person {
     @Column(name = "email")
     private String email;
 
+    // Book owns the relation, so this cache is evicted by LibraryCache when a book changes hands
     @OneToMany(mappedBy = "reader")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person-books")
     private List<Book> books;
 
     public Person () {
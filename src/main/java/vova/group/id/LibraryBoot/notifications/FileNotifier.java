@@ -0,0 +1,57 @@
+package vova.group.id.LibraryBoot.notifications;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import vova.group.id.LibraryBoot.dto.OverdueNotice;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends the reminders to library.notifications.file, one JSON object per line.
+ */
+@Component
+@ConditionalOnProperty(name = "library.notifications.sink", havingValue = "file")
+public class FileNotifier implements OverdueNotifier {
+
+    private final Path file;
+    private final ObjectMapper jsonMapper;
+    // not synchronized, a virtual thread waiting for a monitor pins its carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @Autowired
+    public FileNotifier(@Value("${library.notifications.file:overdue-reminders.ndjson}") Path file,
+                        ObjectMapper jsonMapper) {
+        this.file = file;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Override
+    public void send(OverdueNotice notice) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("bookId", notice.getBookId());
+        line.put("takenAt", notice.getTakenAt().getTime());
+        line.put("readerId", notice.getReaderId());
+        line.put("readerName", notice.getReaderName());
+        line.put("email", notice.getEmail());
+        line.put("title", notice.getTitle());
+        line.put("author", notice.getAuthor());
+        String json = jsonMapper.writeValueAsString(line) + "\n";
+
+        writeLock.lock();
+        try {
+            Files.writeString(file, json, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
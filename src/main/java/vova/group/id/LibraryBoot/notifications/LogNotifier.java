@@ -0,0 +1,23 @@
+package vova.group.id.LibraryBoot.notifications;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import vova.group.id.LibraryBoot.dto.OverdueNotice;
+
+/**
+ * Writes the reminders to the log, the sink when nothing else is configured.
+ */
+@Component
+@ConditionalOnProperty(name = "library.notifications.sink", havingValue = "log", matchIfMissing = true)
+public class LogNotifier implements OverdueNotifier {
+
+    private static final Logger log = LoggerFactory.getLogger(LogNotifier.class);
+
+    @Override
+    public void send(OverdueNotice notice) {
+        log.info("Reminder to {} <{}>: '{}' by {} taken on {} is overdue", notice.getReaderName(), notice.getEmail(),
+                notice.getTitle(), notice.getAuthor(), notice.getTakenAt());
+    }
+}
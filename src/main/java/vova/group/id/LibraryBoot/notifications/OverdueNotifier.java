@@ -0,0 +1,14 @@
+package vova.group.id.LibraryBoot.notifications;
+
+import vova.group.id.LibraryBoot.dto.OverdueNotice;
+
+import java.io.IOException;
+
+/**
+ * Where the reminders about overdue books go, chosen with library.notifications.sink: the log or a file.
+ * Another sink, mail say, is a bean of this type. It is called from many virtual threads at once and a
+ * reminder that failed is sent again on the next run, the book id and takenAt together identify it.
+ */
+public interface OverdueNotifier {
+    void send(OverdueNotice notice) throws IOException;
+}
@@ -0,0 +1,227 @@
+package vova.group.id.LibraryBoot.notifications;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vova.group.id.LibraryBoot.dto.OverdueNotice;
+import vova.group.id.LibraryBoot.repositories.BooksRepository;
+import vova.group.id.LibraryBoot.util.LoanPolicy;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends a reminder for every loan that has become overdue, once. The loans are read in (taken_at, id) order
+ * a chunk at a time, from the last loan reminded of (its row in job_mark, see the V6 migration) up to the
+ * overdue boundary: a range of the index on taken_at, so a run reads only the loans that became overdue
+ * since the last one. A chunk is claimed under the lock of the mark and sent after that transaction, on virtual
+ * threads, at most library.notifications.concurrency at once; a second transaction then moves the mark past
+ * them. While the claim lasts a second instance of the application leaves the job alone.
+ * A reminder that fails stops the run after its chunk. The mark stays before it, the ones sent after it are
+ * kept in overdue_reminder_sent (see the V7 migration), so the next run sends only the failed ones again.
+ */
+@Component
+public class OverdueReminders {
+
+    public static final String JOB = "overdue-reminders";
+    // a chunk not moved past by then is taken over, by another instance say when this one has stopped
+    private static final int CLAIM_SECONDS = 120;
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueReminders.class);
+
+    private static final String LOCK_MARK = "SELECT taken_at, book_id, claimed_until FROM job_mark WHERE job = ? FOR UPDATE";
+    private static final String CLAIM = "UPDATE job_mark SET claimed_until = ? WHERE job = ?";
+    // only while the claim is still ours, a chunk taken over leaves the mark to the instance that took it
+    private static final String MOVE_MARK = "UPDATE job_mark SET taken_at = ?, book_id = ?, claimed_until = NULL " +
+            "WHERE job = ? AND claimed_until = ?";
+    private static final String RELEASE = "UPDATE job_mark SET claimed_until = NULL WHERE job = ? AND claimed_until = ?";
+    private static final String SELECT_SENT = "SELECT book_id, taken_at FROM overdue_reminder_sent";
+    private static final String INSERT_SENT = "INSERT INTO overdue_reminder_sent (book_id, taken_at) VALUES (?, ?)";
+    private static final String DELETE_SENT = "DELETE FROM overdue_reminder_sent " +
+            "WHERE taken_at < ? OR (taken_at = ? AND book_id <= ?)";
+    // the mark before the first run, older than any loan
+    private static final Mark START = new Mark(new Timestamp(0), 0);
+
+    private final BooksRepository booksRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LoanPolicy loanPolicy;
+    private final OverdueNotifier notifier;
+    private final TransactionTemplate markTransaction;
+    private final int chunkSize;
+    private final int concurrency;
+    private final Counter sent;
+    private final Counter failed;
+
+    @Autowired
+    public OverdueReminders(BooksRepository booksRepository, JdbcTemplate jdbcTemplate, LoanPolicy loanPolicy,
+                            OverdueNotifier notifier, PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${library.notifications.chunk-size:200}") int chunkSize,
+                            @Value("${library.notifications.concurrency:16}") int concurrency) {
+        this.booksRepository = booksRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.loanPolicy = loanPolicy;
+        this.notifier = notifier;
+        this.markTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+        this.sent = meterRegistry.counter("library.notifications.overdue", "result", "sent");
+        this.failed = meterRegistry.counter("library.notifications.overdue", "result", "failed");
+    }
+
+    // the number of reminders sent
+    @Scheduled(cron = "${library.notifications.cron:0 */15 * * * *}")
+    public int run() {
+        long started = System.currentTimeMillis();
+        // one boundary for the whole run, so it ends even while loans keep becoming overdue
+        Date overdueBefore = loanPolicy.overdueBefore();
+        int total = 0;
+        boolean complete = true;
+        while (complete) {
+            Claim claim = markTransaction.execute(status -> claim(overdueBefore));
+            if (claim == null) {
+                log.debug("Overdue reminders are being sent by another instance");
+                break;
+            }
+            if (claim.loans().isEmpty())
+                break;
+
+            boolean[] sentNow = send(claim.loans(), claim.sentBefore());
+            for (boolean reminded : sentNow)
+                if (reminded)
+                    total++;
+            complete = markTransaction.execute(status -> moveMark(claim, sentNow));
+            if (claim.loans().size() < chunkSize)
+                break;
+        }
+        if (total > 0 || !complete)
+            log.info("Sent {} overdue reminders in {} ms{}", total, System.currentTimeMillis() - started,
+                    complete ? "" : ", the failed ones on the next run");
+        return total;
+    }
+
+    // the next chunk after the mark and the reminders of it already sent, null while another instance holds the job
+    private Claim claim(Date overdueBefore) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Mark mark = jdbcTemplate.queryForObject(LOCK_MARK, (row, number) -> {
+            Timestamp claimedUntil = row.getTimestamp(3);
+            if (claimedUntil != null && claimedUntil.after(now))
+                return null;
+            return row.getTimestamp(1) == null ? START : new Mark(row.getTimestamp(1), row.getInt(2));
+        }, JOB);
+        if (mark == null)
+            return null;
+
+        List<OverdueNotice> loans = booksRepository.findOverdueLoansAfter(mark.takenAt(), mark.bookId(),
+                overdueBefore, PageRequest.ofSize(chunkSize));
+        if (loans.isEmpty())
+            return new Claim(loans, Set.of(), null);
+
+        Set<Mark> sentBefore = new HashSet<>(jdbcTemplate.query(SELECT_SENT,
+                (row, number) -> new Mark(row.getTimestamp(2), row.getInt(1))));
+        Timestamp claimedUntil = new Timestamp(now.getTime() + CLAIM_SECONDS * 1000L);
+        jdbcTemplate.update(CLAIM, claimedUntil, JOB);
+        return new Claim(loans, sentBefore, claimedUntil);
+    }
+
+    // true when every reminder of the chunk has been sent, now or by an earlier run
+    private boolean moveMark(Claim claim, boolean[] sentNow) {
+        List<OverdueNotice> loans = claim.loans();
+        int done = 0;
+        while (done < loans.size() && (sentNow[done] || claim.sentBefore().contains(Mark.of(loans.get(done)))))
+            done++;
+
+        List<Object[]> sentAfterFailure = new ArrayList<>();
+        for (int i = done; i < loans.size(); i++)
+            if (sentNow[i])
+                sentAfterFailure.add(new Object[]{loans.get(i).getBookId(), Mark.of(loans.get(i)).takenAt()});
+        jdbcTemplate.batchUpdate(INSERT_SENT, sentAfterFailure);
+
+        boolean ours;
+        if (done > 0) {
+            Mark last = Mark.of(loans.get(done - 1));
+            ours = jdbcTemplate.update(MOVE_MARK, last.takenAt(), last.bookId(), JOB, claim.claimedUntil()) == 1;
+            if (ours)
+                jdbcTemplate.update(DELETE_SENT, last.takenAt(), last.takenAt(), last.bookId());
+        } else {
+            ours = jdbcTemplate.update(RELEASE, JOB, claim.claimedUntil()) == 1;
+        }
+        if (!ours)
+            log.warn("The overdue reminders claim ran out before the chunk was sent, it was taken over");
+        return done == loans.size();
+    }
+
+    // which of the loans have had their reminder sent now, the ones sent by an earlier run are skipped
+    private boolean[] send(List<OverdueNotice> loans, Set<Mark> sentBefore) {
+        Semaphore permits = new Semaphore(concurrency);
+        List<Future<?>> reminders = new ArrayList<>(loans.size());
+        // close() waits for all of them
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (OverdueNotice loan : loans) {
+                if (sentBefore.contains(Mark.of(loan))) {
+                    reminders.add(null);
+                    continue;
+                }
+                reminders.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        notifier.send(loan);
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        boolean[] sentNow = new boolean[loans.size()];
+        for (int i = 0; i < reminders.size(); i++) {
+            if (reminders.get(i) == null)
+                continue;
+            try {
+                reminders.get(i).get();
+                sent.increment();
+                sentNow[i] = true;
+            } catch (ExecutionException e) {
+                failed.increment();
+                log.warn("Overdue reminder for book {} failed", loans.get(i).getBookId(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return sentNow;
+    }
+
+    // a loan by the taken_at and the id of its book, the order the job reads them in
+    private record Mark(Timestamp takenAt, int bookId) {
+
+        // a Timestamp as read, a Date would lose the microseconds and the loan would not be recognized
+        static Mark of(OverdueNotice loan) {
+            Timestamp takenAt = loan.getTakenAt() instanceof Timestamp read ? read
+                    : new Timestamp(loan.getTakenAt().getTime());
+            return new Mark(takenAt, loan.getBookId());
+        }
+    }
+
+    private record Claim(List<OverdueNotice> loans, Set<Mark> sentBefore, Timestamp claimedUntil) {
+    }
+}
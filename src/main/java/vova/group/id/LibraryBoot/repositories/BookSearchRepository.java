@@ -0,0 +1,12 @@
+package vova.group.id.LibraryBoot.repositories;
+
+import org.springframework.data.domain.Pageable;
+import java.util.List;
+
+/**
+ * Ranked search of books by a fragment of the title or the author name.
+ * Only ids are returned, the books are loaded afterwards together with their readers.
+ */
+public interface BookSearchRepository {
+    List<Integer> searchIds(String query, Pageable pageable);
+}
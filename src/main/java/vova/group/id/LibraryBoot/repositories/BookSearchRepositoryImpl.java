@@ -0,0 +1,63 @@
+package vova.group.id.LibraryBoot.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * On PostgreSQL the query is served by the pg_trgm GIN indexes on lower(title) and lower(author)
+ * (see db/migration/postgresql) and ranked by trigram similarity. Other databases (H2 in tests) run the same
+ * filter and rank title matches before author matches and prefix matches before inner ones.
+ */
+public class BookSearchRepositoryImpl implements BookSearchRepository {
+
+    private static final String POSTGRES_SEARCH = "SELECT b.id FROM Book b " +
+            "WHERE lower(b.title) LIKE :pattern ESCAPE '\\' OR lower(b.author) LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY greatest(similarity(lower(b.title), :query), similarity(lower(b.author), :query)) DESC, b.id";
+
+    private static final String GENERIC_SEARCH = "SELECT b.id FROM Book b " +
+            "WHERE lower(b.title) LIKE :pattern ESCAPE '\\' OR lower(b.author) LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY CASE WHEN lower(b.title) LIKE :prefix ESCAPE '\\' THEN 0 " +
+            "WHEN lower(b.title) LIKE :pattern ESCAPE '\\' THEN 1 " +
+            "WHEN lower(b.author) LIKE :prefix ESCAPE '\\' THEN 2 ELSE 3 END, b.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Boolean postgres;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Integer> searchIds(String query, Pageable pageable) {
+        String normalized = query.toLowerCase(Locale.ROOT);
+        String escaped = normalized.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+
+        Query searchQuery;
+        if (isPostgres()) {
+            searchQuery = entityManager.createNativeQuery(POSTGRES_SEARCH, Integer.class)
+                    .setParameter("query", normalized);
+        } else {
+            searchQuery = entityManager.createNativeQuery(GENERIC_SEARCH, Integer.class)
+                    .setParameter("prefix", escaped + "%");
+        }
+
+        return searchQuery.setParameter("pattern", "%" + escaped + "%")
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        }
+        return postgres;
+    }
+}
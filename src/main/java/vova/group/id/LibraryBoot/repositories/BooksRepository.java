@@ -1,13 +1,99 @@
 package vova.group.id.LibraryBoot.repositories;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.dto.LoanSummary;
+import vova.group.id.LibraryBoot.dto.OverdueLoan;
+import vova.group.id.LibraryBoot.dto.OverdueNotice;
 import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 
 @Repository
-public interface BooksRepository extends JpaRepository<Book, Integer> {
-    List<Book> findByTitleContainingIgnoreCase(String titleFragment);
+public interface BooksRepository extends JpaRepository<Book, Integer>, BookSearchRepository {
+
+    // for the pages that show the reader, so it comes in the same select
+    @EntityGraph(attributePaths = "reader")
+    Optional<Book> findWithReaderById(int id);
+
+    @EntityGraph(attributePaths = "reader")
+    List<Book> findWithReaderByIdIn(Collection<Integer> ids);
+
+    // books of one reader, served by the index on person_id
+    @Query("select b.id as id, b.title as title, b.author as author, b.year as year, b.takenAt as takenAt, " +
+            "(case when b.takenAt < :overdueBefore then true else false end) as expired " +
+            "from Book b where b.reader.id = :personId order by b.id")
+    List<LoanSummary> findLoansByReaderId(@Param("personId") int personId, @Param("overdueBefore") Date overdueBefore);
+
+    // overdue loans of the whole library, served by the index on taken_at
+    @Query("select b.id as bookId, b.title as title, b.author as author, b.takenAt as takenAt, " +
+            "r.id as readerId, r.fullName as readerName " +
+            "from Book b join b.reader r where b.takenAt < :overdueBefore order by b.takenAt, b.id")
+    List<OverdueLoan> findOverdueLoans(@Param("overdueBefore") Date overdueBefore, Pageable pageable);
+
+    // overdue loans after (takenAt, id) in the same order, a range of the index on taken_at
+    @Query("select b.id as bookId, b.title as title, b.author as author, b.takenAt as takenAt, " +
+            "r.id as readerId, r.fullName as readerName, r.email as email " +
+            "from Book b join b.reader r where b.takenAt >= :afterTakenAt and b.takenAt < :overdueBefore " +
+            "and (b.takenAt > :afterTakenAt or b.id > :afterId) order by b.takenAt, b.id")
+    List<OverdueNotice> findOverdueLoansAfter(@Param("afterTakenAt") Date afterTakenAt, @Param("afterId") int afterId,
+                                              @Param("overdueBefore") Date overdueBefore, Pageable pageable);
+
+    // the whole catalogue for the export: forward-only and read in pages of the fetch size
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select b from Book b left join fetch b.reader order by b.id")
+    Stream<Book> streamAllWithReader();
+
+    // checkout and return in one conditional statement, 0 rows means someone else was first
+    @Modifying
+    @Query("update Book b set b.reader = :reader, b.takenAt = :takenAt, b.version = b.version + 1 " +
+            "where b.id = :id and b.reader is null")
+    int checkOut(@Param("id") int id, @Param("reader") Person reader, @Param("takenAt") Date takenAt);
+
+    @Query("select b.author from Book b where b.id = :id")
+    String findAuthorById(@Param("id") int id);
+
+    // the book and its loan as they are, locked until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.id = :id")
+    Optional<Book> findForUpdateById(@Param("id") int id);
+
+    @Modifying
+    @Query("update Book b set b.reader = null, b.takenAt = null, b.version = b.version + 1 " +
+            "where b.id = :id and b.reader is not null")
+    int giveBack(@Param("id") int id);
+
+    // OFFSET pagination
+    List<BookSummary> findSummariesBy(Pageable pageable);
+
+    // keyset pagination by id
+    List<BookSummary> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<BookSummary> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    List<BookSummary> findByIdLessThanOrderByIdDesc(int id, Pageable pageable);
+
+    // keyset pagination by (year, id)
+    List<BookSummary> findAllByOrderByYearAscIdAsc(Pageable pageable);
+
+    @Query("select b.id as id, b.title as title, b.author as author, b.year as year from Book b " +
+            "where b.year > :year or (b.year = :year and b.id > :id) order by b.year asc, b.id asc")
+    List<BookSummary> findNextSortedByYear(@Param("year") int year, @Param("id") int id, Pageable pageable);
+
+    @Query("select b.id as id, b.title as title, b.author as author, b.year as year from Book b " +
+            "where b.year < :year or (b.year = :year and b.id < :id) order by b.year desc, b.id desc")
+    List<BookSummary> findPreviousSortedByYear(@Param("year") int year, @Param("id") int id, Pageable pageable);
 }
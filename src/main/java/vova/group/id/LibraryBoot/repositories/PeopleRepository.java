@@ -1,11 +1,37 @@
 package vova.group.id.LibraryBoot.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
+import vova.group.id.LibraryBoot.dto.ReaderOption;
 import vova.group.id.LibraryBoot.models.Person;
 
+import java.util.Collection;
+import java.util.List;
+
 
 @Repository
 public interface PeopleRepository extends JpaRepository<Person, Integer> {
     Person findByEmail(String email);
+
+    // the people list only, invalidated by Hibernate on any change of Person
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "people")})
+    List<PersonSummary> findSummariesByOrderByIdAsc();
+
+    // reader picker, served by the index on upper(full_name)
+    List<ReaderOption> findByFullNameStartingWithIgnoreCaseOrderByFullNameAscIdAsc(String prefix, Pageable pageable);
+
+    // which of the readers of a bulk checkout exist, without loading them
+    @Query("select p.id from Person p where p.id in :ids")
+    List<Integer> findExistingIds(Collection<Integer> ids);
+
+    // emails of a bulk import chunk that are already taken
+    @Query("select p.email from Person p where p.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
 }
@@ -0,0 +1,30 @@
+package vova.group.id.LibraryBoot.search;
+
+import lombok.Getter;
+
+/**
+ * Published by BooksService when a book is created, edited or deleted.
+ */
+@Getter
+public class BookChangedEvent {
+
+    private final int bookId;
+    private final String title;
+    private final String author;
+    private final boolean deleted;
+
+    private BookChangedEvent(int bookId, String title, String author, boolean deleted) {
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.deleted = deleted;
+    }
+
+    public static BookChangedEvent saved(int bookId, String title, String author) {
+        return new BookChangedEvent(bookId, title, author, false);
+    }
+
+    public static BookChangedEvent deleted(int bookId) {
+        return new BookChangedEvent(bookId, null, null, true);
+    }
+}
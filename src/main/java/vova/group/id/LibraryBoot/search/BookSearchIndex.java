@@ -0,0 +1,275 @@
+package vova.group.id.LibraryBoot.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.repositories.BooksRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional in-memory trigram index over book titles and authors, so the search page does not load the database.
+ * Enabled with library.search.in-memory.enabled=true. The index is built when the application starts
+ * and then follows the changes committed by BooksService.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final BooksRepository booksRepository;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // changes committed while a new segment is being built, replayed on top of it
+    private final Queue<BookChangedEvent> changesDuringRebuild = new ConcurrentLinkedQueue<>();
+    private boolean rebuilding;
+    private volatile boolean ready;
+    private Segment segment = new Segment();
+    private long lastBuildMillis;
+
+    @Autowired
+    public BookSearchIndex(BooksRepository booksRepository,
+                           @Value("${library.search.in-memory.enabled:false}") boolean enabled) {
+        this.booksRepository = booksRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // enabled and built at least once, until then the search goes to the database
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled)
+            return;
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Book search index was not built, search stays on the database", e);
+        }
+    }
+
+    public SearchIndexReport rebuild() {
+        if (!enabled)
+            return report();
+
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                rebuilding = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long start = System.currentTimeMillis();
+            Segment newSegment = new Segment();
+            try {
+                List<BookSummary> books = booksRepository.findAllByOrderByIdAsc(PageRequest.ofSize(BUILD_BATCH_SIZE));
+                while (!books.isEmpty()) {
+                    books.forEach(book -> newSegment.put(book.getId(), book.getTitle(), book.getAuthor()));
+                    books = booksRepository.findByIdGreaterThanOrderByIdAsc(books.getLast().getId(), PageRequest.ofSize(BUILD_BATCH_SIZE));
+                }
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    rebuilding = false;
+                    changesDuringRebuild.clear();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                BookChangedEvent change;
+                while ((change = changesDuringRebuild.poll()) != null)
+                    newSegment.apply(change);
+                segment = newSegment;
+                rebuilding = false;
+                ready = true;
+                lastBuildMillis = System.currentTimeMillis() - start;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Book search index built: {} books in {} ms", newSegment.documents.size(), lastBuildMillis);
+        } finally {
+            rebuildLock.unlock();
+        }
+        return report();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            segment.apply(event);
+            if (rebuilding)
+                changesDuringRebuild.add(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the books whose title or author contains the query, ranked the same way as the database search:
+     * title prefix, title, author prefix, author; then by id.
+     */
+    public List<Integer> search(String query, int offset, int limit) {
+        String normalized = query.toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            long[] ranked = segment.match(normalized);
+            Arrays.sort(ranked);
+
+            List<Integer> ids = new ArrayList<>();
+            for (int i = offset; i < ranked.length && ids.size() < limit; i++)
+                ids.add((int) ranked[i]);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchIndexReport report() {
+        lock.readLock().lock();
+        try {
+            long postings = 0;
+            // HashMap node, Long key, table slot, IntPostingList object and int[] header
+            long postingBytes = 0;
+            for (IntPostingList list : segment.postings.values()) {
+                postings += list.size();
+                postingBytes += 32 + 16 + 4 + 24 + 16 + 4L * list.capacity();
+            }
+            // HashMap node, Integer key, table slot, String[2] and two Strings with their byte arrays
+            long documentBytes = 0;
+            for (String[] document : segment.documents.values())
+                documentBytes += 32 + 16 + 4 + 24 + stringBytes(document[0]) + stringBytes(document[1]);
+
+            return new SearchIndexReport(enabled, segment.documents.size(), segment.postings.size(), postings,
+                    postingBytes, documentBytes, lastBuildMillis);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long stringBytes(String value) {
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        return 24 + 16 + (long) value.length() * (latin1 ? 1 : 2);
+    }
+
+    private static long trigram(String value, int from) {
+        return ((long) value.charAt(from) << 32) | ((long) value.charAt(from + 1) << 16) | value.charAt(from + 2);
+    }
+
+    private static class Segment {
+        private final Map<Long, IntPostingList> postings = new HashMap<>();
+        // lower-cased title and author, used to verify trigram candidates and to rank them
+        private final Map<Integer, String[]> documents = new HashMap<>();
+
+        void apply(BookChangedEvent event) {
+            if (event.isDeleted())
+                remove(event.getBookId());
+            else
+                put(event.getBookId(), event.getTitle(), event.getAuthor());
+        }
+
+        void put(int id, String title, String author) {
+            remove(id);
+            String[] document = {title.toLowerCase(Locale.ROOT), author.toLowerCase(Locale.ROOT)};
+            documents.put(id, document);
+            for (String field : document)
+                for (int i = 0; i + 3 <= field.length(); i++)
+                    postings.computeIfAbsent(trigram(field, i), key -> new IntPostingList()).add(id);
+        }
+
+        void remove(int id) {
+            String[] document = documents.remove(id);
+            if (document == null)
+                return;
+            for (String field : document)
+                for (int i = 0; i + 3 <= field.length(); i++) {
+                    long key = trigram(field, i);
+                    IntPostingList list = postings.get(key);
+                    if (list != null) {
+                        list.remove(id);
+                        if (list.size() == 0)
+                            postings.remove(key);
+                    }
+                }
+        }
+
+        // matching ids packed as (rank << 32 | id), so sorting the array gives the result order
+        long[] match(String query) {
+            long[] matches = new long[16];
+            int count = 0;
+
+            for (int id : candidates(query)) {
+                String[] document = documents.get(id);
+                int rank;
+                if (document[0].startsWith(query)) rank = 0;
+                else if (document[0].contains(query)) rank = 1;
+                else if (document[1].startsWith(query)) rank = 2;
+                else if (document[1].contains(query)) rank = 3;
+                else continue;
+
+                if (count == matches.length)
+                    matches = Arrays.copyOf(matches, count * 2);
+                matches[count++] = ((long) rank << 32) | id;
+            }
+            return Arrays.copyOf(matches, count);
+        }
+
+        private Collection<Integer> candidates(String query) {
+            // too short for a trigram, check every book
+            if (query.length() < 3)
+                return documents.keySet();
+
+            List<IntPostingList> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                IntPostingList list = postings.get(trigram(query, i));
+                if (list == null)
+                    return Collections.emptyList();
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(IntPostingList::size));
+
+            // intersect starting from the shortest posting list
+            IntPostingList shortest = lists.getFirst();
+            List<Integer> candidates = new ArrayList<>();
+            for (int i = 0; i < shortest.size(); i++) {
+                int id = shortest.get(i);
+                boolean inAll = true;
+                for (int j = 1; j < lists.size() && inAll; j++)
+                    inAll = lists.get(j).contains(id);
+                if (inAll)
+                    candidates.add(id);
+            }
+            return candidates;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package vova.group.id.LibraryBoot.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of book ids backed by a primitive int array.
+ * Not thread safe, {@link BookSearchIndex} guards access with its lock.
+ */
+class IntPostingList {
+
+    private int[] ids = new int[4];
+    private int size;
+
+    void add(int id) {
+        // ids are mostly appended in increasing order while the index is built
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id;
+            return;
+        }
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0)
+            return;
+        int insertAt = -position - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    void remove(int id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0)
+            return;
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return ids[index];
+    }
+
+    int capacity() {
+        return ids.length;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+    }
+}
@@ -0,0 +1,31 @@
+package vova.group.id.LibraryBoot.search;
+
+import lombok.Getter;
+
+/**
+ * Size of the in-memory search index. Bytes are an estimate for a 64-bit JVM with compressed oops.
+ */
+@Getter
+public class SearchIndexReport {
+
+    private final boolean enabled;
+    private final int books;
+    private final int trigrams;
+    private final long postings;
+    private final long postingBytes;
+    private final long documentBytes;
+    private final long totalBytes;
+    private final long lastBuildMillis;
+
+    public SearchIndexReport(boolean enabled, int books, int trigrams, long postings,
+                             long postingBytes, long documentBytes, long lastBuildMillis) {
+        this.enabled = enabled;
+        this.books = books;
+        this.trigrams = trigrams;
+        this.postings = postings;
+        this.postingBytes = postingBytes;
+        this.documentBytes = documentBytes;
+        this.totalBytes = postingBytes + documentBytes;
+        this.lastBuildMillis = lastBuildMillis;
+    }
+}
@@ -1,31 +1,91 @@
 package vova.group.id.LibraryBoot.services;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.BookLoanResult;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.dto.LoanHistory;
+import vova.group.id.LibraryBoot.dto.OverdueLoan;
+import vova.group.id.LibraryBoot.history.LoanLedger;
 import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.BookCursor;
 import vova.group.id.LibraryBoot.models.BookPageForm;
+import vova.group.id.LibraryBoot.models.BookSlice;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.repositories.BooksRepository;
+import vova.group.id.LibraryBoot.repositories.PeopleRepository;
+import vova.group.id.LibraryBoot.search.BookChangedEvent;
+import vova.group.id.LibraryBoot.search.BookSearchIndex;
+import vova.group.id.LibraryBoot.statistics.LoanCounters;
+import vova.group.id.LibraryBoot.util.LoanPolicy;
 
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.BOOK;
 
 @Service
 @Transactional(readOnly = true)
+@Timed(value = BooksService.METRIC_NAME, description = "Calls of the public methods of BooksService and PeopleService")
 public class BooksService {
 
+    // a timer per class, method and exception on /actuator/prometheus
+    public static final String METRIC_NAME = "library.service";
+
+    private static final int DEFAULT_BOOKS_PER_PAGE = 20;
+    private static final int MAX_BOOKS_PER_PAGE = 100;
+    public static final int SEARCH_RESULTS_PER_PAGE = 20;
+    public static final int OVERDUE_LOANS_PER_PAGE = 50;
+    // ids per select of a bulk checkout or return, keeps the IN lists short
+    private static final int BULK_LOAD_SIZE = 500;
+    // the export reads the whole catalogue in one transaction, spring.transaction.default-timeout is far shorter
+    private static final int EXPORT_TIMEOUT_SECONDS = 3600;
+
     private final BooksRepository booksRepository;
+    private final PeopleRepository peopleRepository;
+    private final BookSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoanPolicy loanPolicy;
+    private final LibraryCache libraryCache;
+    private final CatalogueVersions catalogueVersions;
+    private final LoanCounters loanCounters;
+    private final LoanLedger loanLedger;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public BooksService(BooksRepository booksRepository) {
+    public BooksService(BooksRepository booksRepository, PeopleRepository peopleRepository, BookSearchIndex searchIndex,
+                        ApplicationEventPublisher eventPublisher, LoanPolicy loanPolicy, LibraryCache libraryCache,
+                        CatalogueVersions catalogueVersions, LoanCounters loanCounters, LoanLedger loanLedger) {
         this.booksRepository = booksRepository;
+        this.peopleRepository = peopleRepository;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.loanPolicy = loanPolicy;
+        this.libraryCache = libraryCache;
+        this.catalogueVersions = catalogueVersions;
+        this.loanCounters = loanCounters;
+        this.loanLedger = loanLedger;
     }
 
-    public List<Book> index(BookPageForm form) {
-        List<Book> books;
+    public BookSlice index(BookPageForm form) {
+        List<BookSummary> books;
 
         Boolean sortByYear = form.getSortByYear();
 
@@ -34,39 +94,106 @@ public class BooksService {
                 .map(Integer::parseInt)
                 .orElse(null);
 
-        Integer booksPerPage = Optional.ofNullable(form.getBooksPerPage())
+        int booksPerPage = Optional.ofNullable(form.getBooksPerPage())
                 .filter(booksValue -> !booksValue.isEmpty())
                 .map(Integer::parseInt)
+                .map(booksValue -> Math.min(Math.max(booksValue, 1), MAX_BOOKS_PER_PAGE))
+                .orElse(DEFAULT_BOOKS_PER_PAGE);
+
+        // explicit page number keeps the old OFFSET paging, ordered like the indexes on (book_year, id) and id
+        if (page != null && sortByYear != null && sortByYear)
+            books = booksRepository.findSummariesBy(PageRequest.of(page, booksPerPage, Sort.by("year", "id")));
+        else if (page != null)
+            books = booksRepository.findSummariesBy(PageRequest.of(page, booksPerPage, Sort.by("id")));
+        else
+            return seek(form.getCursor(), booksPerPage, sortByYear != null && sortByYear);
+
+        return new BookSlice(books);
+    }
+
+    // keyset pagination: one extra row is fetched to know if there is a page further
+    private BookSlice seek(String token, int booksPerPage, boolean sortByYear) {
+        BookCursor cursor = Optional.ofNullable(token)
+                .filter(cursorValue -> !cursorValue.isEmpty())
+                .map(BookCursor::decode)
                 .orElse(null);
+        Pageable limit = PageRequest.ofSize(booksPerPage + 1);
 
-        if (page != null && booksPerPage != null && sortByYear != null && sortByYear)
-            books = booksRepository.findAll(PageRequest.of(page, booksPerPage, Sort.by("year"))).getContent();
-        else if (page != null && booksPerPage != null)
-            books = booksRepository.findAll(PageRequest.of(page, booksPerPage)).getContent();
-        else if (sortByYear != null && sortByYear)
-            books = booksRepository.findAll(Sort.by("year"));
+        List<BookSummary> books;
+        if (cursor == null)
+            books = sortByYear ? booksRepository.findAllByOrderByYearAscIdAsc(limit)
+                    : booksRepository.findAllByOrderByIdAsc(limit);
+        else if (!cursor.isBackward())
+            books = sortByYear ? booksRepository.findNextSortedByYear(cursor.getYear(), cursor.getId(), limit)
+                    : booksRepository.findByIdGreaterThanOrderByIdAsc(cursor.getId(), limit);
         else
-            books = booksRepository.findAll();
+            books = sortByYear ? booksRepository.findPreviousSortedByYear(cursor.getYear(), cursor.getId(), limit)
+                    : booksRepository.findByIdLessThanOrderByIdDesc(cursor.getId(), limit);
 
+        boolean hasMore = books.size() > booksPerPage;
+        if (hasMore)
+            books = books.subList(0, booksPerPage);
 
-        return books;
+        if (cursor != null && cursor.isBackward()) {
+            // the page was read in reverse order
+            books = new ArrayList<>(books);
+            Collections.reverse(books);
+        }
+        if (books.isEmpty())
+            return new BookSlice(books);
+
+        boolean backward = cursor != null && cursor.isBackward();
+        boolean hasNext = backward || hasMore;
+        boolean hasPrev = cursor != null && (!backward || hasMore);
+
+        return new BookSlice(books,
+                hasNext ? BookCursor.after(books.getLast()).encode() : null,
+                hasPrev ? BookCursor.before(books.getFirst()).encode() : null);
+    }
+
+    public List<Book> search(String query, int page) {
+        String trimmed = query == null ? "" : query.trim();
+        if (trimmed.isEmpty())
+            return Collections.emptyList();
+
+        int offset = Math.max(page, 0) * SEARCH_RESULTS_PER_PAGE;
+        List<Integer> ids = searchIndex.isReady()
+                ? searchIndex.search(trimmed, offset, SEARCH_RESULTS_PER_PAGE)
+                : booksRepository.searchIds(trimmed, PageRequest.of(Math.max(page, 0), SEARCH_RESULTS_PER_PAGE));
+        if (ids.isEmpty())
+            return Collections.emptyList();
+
+        // one select for the books and their readers, then back to the ranking order
+        Map<Integer, Book> booksById = new HashMap<>();
+        booksRepository.findWithReaderByIdIn(ids).forEach(book -> booksById.put(book.getId(), book));
+        return ids.stream().map(booksById::get).filter(Objects::nonNull).toList();
     }
 
-    public List<Book> index(String titleFragment) {
-        return booksRepository.findByTitleContainingIgnoreCase(titleFragment);
+    public List<OverdueLoan> overdueLoans(int page) {
+        return booksRepository.findOverdueLoans(loanPolicy.overdueBefore(),
+                PageRequest.of(Math.max(page, 0), OVERDUE_LOANS_PER_PAGE));
     }
 
     public Book show(int id) {
         return booksRepository.findById(id).orElse(null);
     }
 
-    public Person showBookReader(int id) {
-        return booksRepository.findById(id).map(Book::getReader).orElse(null);
+    // checkouts and returns of the book, newest first, also of a deleted book
+    public LoanHistory history(int bookId, String cursor) {
+        return loanLedger.bookHistory(bookId, cursor);
+    }
+
+    // the book page: book and reader in one select
+    public Book showWithReader(int id) {
+        return booksRepository.findWithReaderById(id).orElse(null);
     }
 
     @Transactional
     public void save(Book book) {
         booksRepository.save(book);
+        loanCounters.booksAdded(1);
+        catalogueVersions.changed(BOOK);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book.getId(), book.getTitle(), book.getAuthor()));
     }
 
 
@@ -76,27 +203,170 @@ public class BooksService {
         if (book.isPresent()) {
             updatedBook.setId(id);
             updatedBook.setReader(book.get().getReader());
+            updatedBook.setTakenAt(book.get().getTakenAt());
+            if (updatedBook.getReader() != null && !Objects.equals(updatedBook.getAuthor(), book.get().getAuthor()))
+                loanCounters.authorChanged(book.get().getAuthor(), updatedBook.getAuthor());
             booksRepository.save(updatedBook);
+            catalogueVersions.changed(BOOK);
+            eventPublisher.publishEvent(BookChangedEvent.saved(id, updatedBook.getTitle(), updatedBook.getAuthor()));
+        }
+    }
+
+    /**
+     * Gives the book to the reader if it is still free.
+     * Returns false when another librarian has given it away first.
+     * The bulk update makes Hibernate evict the cached books and Person.books itself.
+     */
+    @Transactional
+    public boolean appointPerson(Person person, int bookId) {
+        Date now = new Date();
+        if (booksRepository.checkOut(bookId, person, now) == 1) {
+            // the row is locked by the update now, its author cannot change meanwhile
+            loanCounters.loanStarted(person.getId(), booksRepository.findAuthorById(bookId));
+            loanLedger.checkedOut(bookId, person.getId(), now);
+            catalogueVersions.changed(BOOK);
+            return true;
+        }
+        if (!booksRepository.existsById(bookId))
+            throw new IllegalArgumentException("Book not found");
+        return false;
+    }
+
+    /**
+     * Hands every book with its reader to the consumer, in id order. The books are read from a cursor
+     * and detached once consumed, so the memory used does not depend on the size of the catalogue.
+     * Returns the number of books.
+     */
+    @Transactional(readOnly = true, timeout = EXPORT_TIMEOUT_SECONDS)
+    public long export(Consumer<Book> consumer) {
+        // a query cache mode only lasts until the cursor is opened, the rows are loaded later
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+
+        long count = 0;
+        try (Stream<Book> books = booksRepository.streamAllWithReader()) {
+            for (Iterator<Book> iterator = books.iterator(); iterator.hasNext(); count++) {
+                Book book = iterator.next();
+                consumer.accept(book);
+                entityManager.detach(book);
+                if (book.getReader() != null)
+                    entityManager.detach(book.getReader());
+            }
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+        return count;
+    }
+
+    /**
+     * Gives many books away in one transaction. The books are loaded with a few selects and the changes
+     * go to the database as JDBC batches of versioned updates, ordered by id (see hibernate.jdbc.batch_size).
+     * A book changed by someone else meanwhile fails the whole batch with an optimistic locking exception.
+     */
+    @Transactional
+    public List<BookLoanResult> appointPeople(List<BookLoanRequest> loans) {
+        Map<Integer, Book> books = loadBooks(loans.stream().map(BookLoanRequest::getBookId).toList());
+        Set<Integer> readerIds = new HashSet<>();
+        for (List<Integer> chunk : chunks(loans.stream().map(BookLoanRequest::getReaderId).distinct().toList()))
+            readerIds.addAll(peopleRepository.findExistingIds(chunk));
+
+        Date now = new Date();
+        List<BookLoanResult> results = new ArrayList<>(loans.size());
+        for (BookLoanRequest loan : loans) {
+            Book book = books.get(loan.getBookId());
+            BookLoanResult.Status status;
+            if (book == null) {
+                status = BookLoanResult.Status.BOOK_NOT_FOUND;
+            } else if (!readerIds.contains(loan.getReaderId())) {
+                status = BookLoanResult.Status.READER_NOT_FOUND;
+            } else if (book.getReader() != null) {
+                status = BookLoanResult.Status.ALREADY_TAKEN;
+            } else {
+                Person reader = peopleRepository.getReferenceById(loan.getReaderId());
+                book.setReader(reader);
+                book.setTakenAt(now);
+                loanCounters.loanStarted(reader.getId(), book.getAuthor());
+                loanLedger.checkedOut(book.getId(), reader.getId(), now);
+                libraryCache.evictReaderBooks(reader);
+                catalogueVersions.changed(BOOK);
+                status = BookLoanResult.Status.DONE;
+            }
+            results.add(new BookLoanResult(loan.getBookId(), status));
         }
+        // here and not in the before-commit writes of the counters, so a version conflict is translated
+        // into ObjectOptimisticLockingFailureException by the repository
+        booksRepository.flush();
+        return results;
     }
 
+    // bulk return, see appointPeople
     @Transactional
-    public void appointPerson(Person person, int bookId) {
-        Book book = booksRepository.findById(bookId).orElseThrow(() -> new IllegalArgumentException("Book not found"));
-        book.setReader(person);
-        book.setTakenAt(new Date());
+    public List<BookLoanResult> freeBooks(List<Integer> bookIds) {
+        Map<Integer, Book> books = loadBooks(bookIds);
+
+        Date now = new Date();
+        List<BookLoanResult> results = new ArrayList<>(bookIds.size());
+        for (int bookId : bookIds) {
+            Book book = books.get(bookId);
+            BookLoanResult.Status status;
+            if (book == null) {
+                status = BookLoanResult.Status.BOOK_NOT_FOUND;
+            } else if (book.getReader() == null) {
+                status = BookLoanResult.Status.ALREADY_FREE;
+            } else {
+                libraryCache.evictReaderBooks(book.getReader());
+                loanCounters.loanEnded(book.getReader().getId(), book.getAuthor(), book.getTakenAt());
+                loanLedger.returned(book.getId(), book.getReader().getId(), book.getTakenAt(), now);
+                book.setReader(null);
+                book.setTakenAt(null);
+                catalogueVersions.changed(BOOK);
+                status = BookLoanResult.Status.DONE;
+            }
+            results.add(new BookLoanResult(bookId, status));
+        }
+        booksRepository.flush();
+        return results;
+    }
+
+    private Map<Integer, Book> loadBooks(List<Integer> ids) {
+        Map<Integer, Book> books = new HashMap<>();
+        for (List<Integer> chunk : chunks(ids.stream().distinct().toList()))
+            booksRepository.findAllById(chunk).forEach(book -> books.put(book.getId(), book));
+        return books;
+    }
+
+    private static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += BULK_LOAD_SIZE)
+            chunks.add(ids.subList(from, Math.min(from + BULK_LOAD_SIZE, ids.size())));
+        return chunks;
     }
 
     @Transactional
     public void delete(int id) {
-        booksRepository.deleteById(id);
+        booksRepository.findById(id).ifPresent(book -> {
+            libraryCache.evictReaderBooks(book.getReader());
+            loanCounters.bookRemoved(book);
+            if (book.getReader() != null)
+                loanLedger.returned(id, book.getReader().getId(), book.getTakenAt(), new Date());
+            booksRepository.delete(book);
+            catalogueVersions.changed(BOOK);
+        });
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id));
     }
 
+    // returning a book that is already free changes nothing
     @Transactional
     public void free(int id) {
-        Book book = booksRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("Book not found"));
-        book.setReader(null);
-        book.setTakenAt(null);
+        // locked, so the loan counted off is the one the update ends
+        Book book = booksRepository.findForUpdateById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
+        if (book.getReader() != null && booksRepository.giveBack(id) == 1) {
+            loanCounters.loanEnded(book.getReader().getId(), book.getAuthor(), book.getTakenAt());
+            loanLedger.returned(id, book.getReader().getId(), book.getTakenAt(), new Date());
+            catalogueVersions.changed(BOOK);
+        }
     }
 
 }
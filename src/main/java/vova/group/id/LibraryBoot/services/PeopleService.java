@@ -1,32 +1,64 @@
 package vova.group.id.LibraryBoot.services;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.dto.LoanHistory;
+import vova.group.id.LibraryBoot.dto.LoanSummary;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
+import vova.group.id.LibraryBoot.dto.ReaderOption;
+import vova.group.id.LibraryBoot.history.LoanLedger;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.repositories.BooksRepository;
 import vova.group.id.LibraryBoot.repositories.PeopleRepository;
+import vova.group.id.LibraryBoot.statistics.LoanCounters;
+import vova.group.id.LibraryBoot.util.LoanPolicy;
 
 
-import java.util.Date;
 import java.util.List;
 
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.BOOK;
+import static vova.group.id.LibraryBoot.cache.CatalogueVersions.Table.PERSON;
+
 @Service
 @Transactional(readOnly = true)
+@Timed(value = BooksService.METRIC_NAME, description = "Calls of the public methods of BooksService and PeopleService")
 public class PeopleService {
 
+    public static final int READER_PICKER_PAGE_SIZE = 20;
+
     private final PeopleRepository peopleRepository;
     private final BooksRepository booksRepository;
+    private final LoanPolicy loanPolicy;
+    private final LibraryCache libraryCache;
+    private final CatalogueVersions catalogueVersions;
+    private final LoanCounters loanCounters;
+    private final LoanLedger loanLedger;
 
     @Autowired
-    public PeopleService(PeopleRepository peopleRepository, BooksRepository booksRepository) {
+    public PeopleService(PeopleRepository peopleRepository, BooksRepository booksRepository, LoanPolicy loanPolicy,
+                         LibraryCache libraryCache, CatalogueVersions catalogueVersions, LoanCounters loanCounters,
+                         LoanLedger loanLedger) {
         this.peopleRepository = peopleRepository;
         this.booksRepository = booksRepository;
+        this.loanPolicy = loanPolicy;
+        this.libraryCache = libraryCache;
+        this.catalogueVersions = catalogueVersions;
+        this.loanCounters = loanCounters;
+        this.loanLedger = loanLedger;
+    }
+
+    public List<PersonSummary> index() {
+        return peopleRepository.findSummariesByOrderByIdAsc();
     }
 
-    public List<Person> index() {
-        return peopleRepository.findAll();
+    public List<ReaderOption> pick(String prefix, int page) {
+        return peopleRepository.findByFullNameStartingWithIgnoreCaseOrderByFullNameAscIdAsc(prefix.trim(),
+                PageRequest.of(Math.max(page, 0), READER_PICKER_PAGE_SIZE));
     }
 
     public Person show(int id) {
@@ -38,34 +70,42 @@ public class PeopleService {
     }
 
 
-    public List<Book> showPersonBooks(int personId) {
-        Person person =  peopleRepository.findById(personId).orElseThrow(() -> new IllegalArgumentException("Person not found"));
-        List<Book> personBooks = person.getBooks();
-            personBooks.forEach(book -> {
-                long diffInMillies = Math.abs(book.getTakenAt().getTime() - new Date().getTime());
-                // 864000000 ms = 10 days
-                if (diffInMillies > 864000000)
-                    book.setExpired(true); // book is expired
-            });
+    public List<LoanSummary> showPersonBooks(int personId) {
+        List<LoanSummary> personBooks = booksRepository.findLoansByReaderId(personId, loanPolicy.overdueBefore());
+        // a reader without books still has to exist
+        if (personBooks.isEmpty() && !peopleRepository.existsById(personId))
+            throw new IllegalArgumentException("Person not found");
         return personBooks;
     }
 
+    // the reader's checkouts and returns, newest first
+    public LoanHistory history(int personId, String cursor) {
+        return loanLedger.readerHistory(personId, cursor);
+    }
+
 
 
     @Transactional
     public void save(Person person) {
         peopleRepository.save(person);
+        catalogueVersions.changed(PERSON);
     }
 
     @Transactional
     public void update(int id, Person updatedPerson) {
         updatedPerson.setId(id);
         peopleRepository.save(updatedPerson);
+        catalogueVersions.changed(PERSON);
     }
 
     @Transactional
     public void delete(int id) {
+        loanCounters.readerRemoved(id);
+        loanLedger.readerRemoved(id);
         peopleRepository.deleteById(id);
+        // the books of the reader are freed by ON DELETE SET NULL, the cached ones still point to the reader
+        libraryCache.evictBooks();
+        catalogueVersions.changed(PERSON, BOOK);
     }
 
 
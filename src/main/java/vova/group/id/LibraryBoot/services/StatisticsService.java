@@ -0,0 +1,36 @@
+package vova.group.id.LibraryBoot.services;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vova.group.id.LibraryBoot.dto.LibraryStatistics;
+import vova.group.id.LibraryBoot.statistics.LoanCounters;
+
+import java.util.Map;
+
+import static vova.group.id.LibraryBoot.statistics.LoanCounters.*;
+
+@Service
+@Transactional(readOnly = true)
+@Timed(value = BooksService.METRIC_NAME, description = "Calls of the public methods of BooksService and PeopleService")
+public class StatisticsService {
+
+    public static final int TOP_LIST_SIZE = 5;
+
+    private final LoanCounters loanCounters;
+
+    @Autowired
+    public StatisticsService(LoanCounters loanCounters) {
+        this.loanCounters = loanCounters;
+    }
+
+    // three small selects, whatever the size of the library
+    public LibraryStatistics dashboard() {
+        Map<String, Long> totals = loanCounters.totals();
+        // a return may count an overdue loan off before the next count has counted it in
+        return new LibraryStatistics(totals.getOrDefault(BOOKS, 0L), totals.getOrDefault(LOANS, 0L),
+                Math.max(totals.getOrDefault(OVERDUE, 0L), 0),
+                loanCounters.topReaders(TOP_LIST_SIZE), loanCounters.topAuthors(TOP_LIST_SIZE));
+    }
+}
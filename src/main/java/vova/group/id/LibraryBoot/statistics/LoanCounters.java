@@ -0,0 +1,274 @@
+package vova.group.id.LibraryBoot.statistics;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vova.group.id.LibraryBoot.dto.AuthorLoans;
+import vova.group.id.LibraryBoot.dto.ReaderLoans;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.util.LoanPolicy;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Books, books on loan and overdue loans of the library, and the books on loan of every reader and author,
+ * kept in small tables (see the V4 migration) so the main page reads a few rows instead of counting Book.
+ * The services report every change. The changes of a transaction are summed up and written just before it
+ * commits, readers and authors sorted, so the counter rows stay locked only for the commit and two
+ * transactions never wait for each other crosswise. Nothing is written when a loan becomes overdue, the
+ * overdue loans are counted again every minute, and once a night everything is counted again from Book,
+ * which also mends the counts after rows were changed by hand or by a transaction running meanwhile.
+ */
+@Component
+public class LoanCounters {
+
+    public static final String BOOKS = "books";
+    public static final String LOANS = "loans";
+    public static final String OVERDUE = "overdue";
+    // rows of each counter, as the migration creates them
+    private static final int SLOTS = 8;
+    // the nightly count reads all of Book, spring.transaction.default-timeout is far shorter
+    private static final int RECONCILE_TIMEOUT_SECONDS = 600;
+
+    private static final Logger log = LoggerFactory.getLogger(LoanCounters.class);
+
+    private static final String ADD = "UPDATE library_counter SET total = total + ? WHERE counter = ? AND slot = ?";
+    private static final String SET = "UPDATE library_counter SET total = CASE WHEN slot = 0 THEN ? ELSE 0 END " +
+            "WHERE counter = ?";
+    private static final String TOTALS = "SELECT counter, SUM(total) FROM library_counter GROUP BY counter";
+    // ON DELETE SET NULL leaves taken_at of the books of a deleted reader
+    private static final String COUNT_OVERDUE = "SELECT count(*) FROM Book WHERE taken_at < ? AND person_id IS NOT NULL";
+    private static final String READER_LOANS = "SELECT author, count(*), count(CASE WHEN taken_at < ? THEN 1 END) " +
+            "FROM Book WHERE person_id = ? GROUP BY author";
+    private static final String TOP_READERS = "SELECT r.person_id, p.full_name, r.loans FROM reader_loan_count r " +
+            "JOIN Person p ON p.id = r.person_id WHERE r.loans > 0 ORDER BY r.loans DESC, r.person_id LIMIT ?";
+    private static final String TOP_AUTHORS = "SELECT author, loans FROM author_loan_count " +
+            "WHERE loans > 0 ORDER BY loans DESC, author LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoanPolicy loanPolicy;
+    private final boolean postgres;
+    private final String addReaderLoans;
+    private final String addAuthorLoans;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public LoanCounters(JdbcTemplate jdbcTemplate, LoanPolicy loanPolicy, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.loanPolicy = loanPolicy;
+        // the first loan of a reader or an author inserts the row
+        this.postgres = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        this.addReaderLoans = postgres ? upsert("reader_loan_count", "person_id")
+                : merge("reader_loan_count", "person_id", "int");
+        this.addAuthorLoans = postgres ? upsert("author_loan_count", "author")
+                : merge("author_loan_count", "author", "varchar(100)");
+    }
+
+    private static String upsert(String table, String key) {
+        return "INSERT INTO " + table + " (" + key + ", loans) VALUES (?, ?) " +
+                "ON CONFLICT (" + key + ") DO UPDATE SET loans = " + table + ".loans + EXCLUDED.loans";
+    }
+
+    // the standard statement, for H2
+    private static String merge(String table, String key, String keyType) {
+        return "MERGE INTO " + table + " t " +
+                "USING (VALUES (CAST(? AS " + keyType + "), CAST(? AS int))) d (" + key + ", loans) " +
+                "ON t." + key + " = d." + key + " WHEN MATCHED THEN UPDATE SET loans = t.loans + d.loans " +
+                "WHEN NOT MATCHED THEN INSERT (" + key + ", loans) VALUES (d." + key + ", d.loans)";
+    }
+
+    public void booksAdded(int count) {
+        changes().add(BOOKS, count);
+    }
+
+    // the book as it was before the delete
+    public void bookRemoved(Book book) {
+        changes().add(BOOKS, -1);
+        if (book.getReader() != null)
+            loanEnded(book.getReader().getId(), book.getAuthor(), book.getTakenAt());
+    }
+
+    public void loanStarted(int readerId, String author) {
+        Changes changes = changes();
+        changes.add(LOANS, 1);
+        changes.readers.merge(readerId, 1, Integer::sum);
+        changes.authors.merge(author, 1, Integer::sum);
+    }
+
+    public void loanEnded(int readerId, String author, Date takenAt) {
+        Changes changes = changes();
+        changes.add(LOANS, -1);
+        if (takenAt != null && takenAt.before(loanPolicy.overdueBefore()))
+            changes.add(OVERDUE, -1);
+        changes.readers.merge(readerId, -1, Integer::sum);
+        changes.authors.merge(author, -1, Integer::sum);
+    }
+
+    // the author of a book on loan was corrected
+    public void authorChanged(String oldAuthor, String newAuthor) {
+        Changes changes = changes();
+        changes.authors.merge(oldAuthor, -1, Integer::sum);
+        changes.authors.merge(newAuthor, 1, Integer::sum);
+    }
+
+    // called before the reader is deleted: ON DELETE SET NULL frees the books, the reader's row goes with the reader
+    public void readerRemoved(int readerId) {
+        Changes changes = changes();
+        jdbcTemplate.query(READER_LOANS, row -> {
+            int loans = row.getInt(2);
+            changes.add(LOANS, -loans);
+            changes.add(OVERDUE, -row.getInt(3));
+            changes.authors.merge(row.getString(1), -loans, Integer::sum);
+        }, loanPolicy.overdueBefore(), readerId);
+        changes.readers.remove(readerId);
+    }
+
+    // BOOKS, LOANS and OVERDUE
+    public Map<String, Long> totals() {
+        Map<String, Long> totals = new HashMap<>();
+        jdbcTemplate.query(TOTALS, row -> {
+            totals.put(row.getString(1), row.getLong(2));
+        });
+        return totals;
+    }
+
+    public List<ReaderLoans> topReaders(int limit) {
+        return jdbcTemplate.query(TOP_READERS,
+                (row, number) -> new ReaderLoans(row.getInt(1), row.getString(2), row.getInt(3)), limit);
+    }
+
+    public List<AuthorLoans> topAuthors(int limit) {
+        return jdbcTemplate.query(TOP_AUTHORS,
+                (row, number) -> new AuthorLoans(row.getString(1), row.getInt(2)), limit);
+    }
+
+    // the loans that became overdue since the last count, through the index on taken_at
+    @Scheduled(fixedDelayString = "${library.statistics.overdue-refresh:1m}")
+    @Transactional
+    public void countOverdue() {
+        jdbcTemplate.update(SET, count(COUNT_OVERDUE, loanPolicy.overdueBefore()), OVERDUE);
+    }
+
+    @Scheduled(cron = "${library.statistics.reconcile-cron:0 30 3 * * *}")
+    @Transactional(timeout = RECONCILE_TIMEOUT_SECONDS)
+    public void reconcile() {
+        long started = System.currentTimeMillis();
+        jdbcTemplate.update(SET, count("SELECT count(*) FROM Book"), BOOKS);
+        jdbcTemplate.update(SET, count("SELECT count(*) FROM Book WHERE person_id IS NOT NULL"), LOANS);
+        jdbcTemplate.update(SET, count(COUNT_OVERDUE, loanPolicy.overdueBefore()), OVERDUE);
+
+        jdbcTemplate.update("DELETE FROM reader_loan_count");
+        jdbcTemplate.update("INSERT INTO reader_loan_count (person_id, loans) " +
+                "SELECT person_id, count(*) FROM Book WHERE person_id IS NOT NULL GROUP BY person_id");
+        jdbcTemplate.update("DELETE FROM author_loan_count");
+        jdbcTemplate.update("INSERT INTO author_loan_count (author, loans) " +
+                "SELECT author, count(*) FROM Book WHERE person_id IS NOT NULL GROUP BY author");
+        log.info("Loan counters counted again in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private long count(String sql, Object... arguments) {
+        return jdbcTemplate.queryForObject(sql, Long.class, arguments);
+    }
+
+    // the changes of the current transaction, written before it commits
+    private Changes changes() {
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes != null)
+            return changes;
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("Loan counters are changed inside a transaction");
+
+        Changes created = new Changes();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                write(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LoanCounters.this);
+            }
+        });
+        return created;
+    }
+
+    private void write(Changes changes) {
+        // the books first, like a transaction without counters locks them
+        if (entityManager.isJoinedToTransaction()) {
+            try {
+                entityManager.flush();
+            } catch (RuntimeException e) {
+                // Spring does not translate what a before-commit callback throws, a version conflict of an
+                // update or a delete would reach the caller as the JPA exception
+                DataAccessException translated = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+                throw translated != null ? translated : e;
+            }
+        }
+
+        addLoans(addReaderLoans, arguments(changes.readers));
+        addLoans(addAuthorLoans, arguments(changes.authors));
+
+        int slot = ThreadLocalRandom.current().nextInt(SLOTS);
+        changes.counters.forEach((counter, delta) -> {
+            if (delta != 0)
+                jdbcTemplate.update(ADD, delta, counter, slot);
+        });
+    }
+
+    private void addLoans(String sql, List<Object[]> rows) {
+        if (rows.isEmpty())
+            return;
+        if (postgres) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            return;
+        }
+        // MERGE inserts the row when another transaction has just inserted it too; H2 goes on with the
+        // transaction after the failed statement, and the second time the row is there to update
+        for (Object[] row : rows) {
+            try {
+                jdbcTemplate.update(sql, row);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update(sql, row);
+            }
+        }
+    }
+
+    private static List<Object[]> arguments(Map<?, Integer> deltas) {
+        List<Object[]> arguments = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            if (delta != 0)
+                arguments.add(new Object[]{key, delta});
+        });
+        return arguments;
+    }
+
+    private static class Changes {
+        private final Map<String, Long> counters = new TreeMap<>();
+        private final Map<Integer, Integer> readers = new TreeMap<>();
+        private final Map<String, Integer> authors = new TreeMap<>();
+
+        void add(String counter, long delta) {
+            counters.merge(counter, delta, Long::sum);
+        }
+    }
+}
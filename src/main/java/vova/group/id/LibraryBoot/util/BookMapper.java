@@ -0,0 +1,36 @@
+package vova.group.id.LibraryBoot.util;
+
+import org.springframework.stereotype.Component;
+import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.BookDetails;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+
+/**
+ * Converts the book form to the entity and back, field by field.
+ * The form keeps the year as text, it is parsed here once (BookDTO has already checked it is 4 digits).
+ */
+@Component
+public class BookMapper {
+
+    public Book toBook(BookDTO bookDTO) {
+        Book book = new Book(bookDTO.getTitle(), bookDTO.getAuthor(), Integer.parseInt(bookDTO.getYear()));
+        book.setId(bookDTO.getId());
+        book.setVersion(bookDTO.getVersion());
+        return book;
+    }
+
+    public BookDTO toBookDTO(Book book) {
+        BookDTO bookDTO = new BookDTO(book.getTitle(), book.getAuthor(), String.valueOf(book.getYear()));
+        bookDTO.setId(book.getId());
+        bookDTO.setVersion(book.getVersion());
+        return bookDTO;
+    }
+
+    // the reader has to be loaded with the book
+    public BookDetails toBookDetails(Book book) {
+        Person reader = book.getReader();
+        return new BookDetails(book.getId(), book.getTitle(), book.getAuthor(), book.getYear(), book.getVersion(),
+                reader == null ? null : reader.getId(), reader == null ? null : reader.getFullName(), book.getTakenAt());
+    }
+}
@@ -0,0 +1,29 @@
+package vova.group.id.LibraryBoot.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * How long a reader may keep a book, library.loan-period in application.properties (10 days by default).
+ */
+@Component
+public class LoanPolicy {
+
+    private final Duration loanPeriod;
+
+    public LoanPolicy(@Value("${library.loan-period:10d}") Duration loanPeriod) {
+        this.loanPeriod = loanPeriod;
+    }
+
+    public Duration getLoanPeriod() {
+        return loanPeriod;
+    }
+
+    // books taken before this moment are overdue
+    public Date overdueBefore() {
+        return new Date(System.currentTimeMillis() - loanPeriod.toMillis());
+    }
+}
@@ -0,0 +1,30 @@
+package vova.group.id.LibraryBoot.util;
+
+import org.springframework.stereotype.Component;
+import vova.group.id.LibraryBoot.dto.LoanSummary;
+import vova.group.id.LibraryBoot.dto.PersonDTO;
+import vova.group.id.LibraryBoot.dto.PersonDetails;
+import vova.group.id.LibraryBoot.models.Person;
+
+import java.util.List;
+
+/**
+ * Converts the reader form to the entity and back, field by field.
+ */
+@Component
+public class PersonMapper {
+
+    public Person toPerson(PersonDTO personDTO) {
+        Person person = new Person(personDTO.getFullName(), Integer.parseInt(personDTO.getBirthYear()), personDTO.getEmail());
+        person.setId(personDTO.getId());
+        return person;
+    }
+
+    public PersonDTO toPersonDTO(Person person) {
+        return new PersonDTO(person.getId(), person.getFullName(), String.valueOf(person.getBirthYear()), person.getEmail());
+    }
+
+    public PersonDetails toPersonDetails(Person person, List<LoanSummary> books) {
+        return new PersonDetails(person.getId(), person.getFullName(), person.getBirthYear(), person.getEmail(), books);
+    }
+}
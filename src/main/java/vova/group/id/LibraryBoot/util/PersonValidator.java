@@ -12,6 +12,8 @@ import vova.group.id.LibraryBoot.services.PeopleService;
 @Component
 public class PersonValidator implements Validator {
 
+    public static final String EMAIL_TAKEN_MESSAGE = "A user with this email already exists";
+
     private final PeopleService peopleService;
 
     @Autowired
@@ -31,10 +33,14 @@ public class PersonValidator implements Validator {
         // Check for email uniqueness
         Person personFromDB = peopleService.show(personDTO.getEmail());
         if (personFromDB != null && personFromDB.getId() != personDTO.getId()) {
-            errors.rejectValue("email", "", "A user with this email already exists");
+            errors.rejectValue("email", "", EMAIL_TAKEN_MESSAGE);
         }
 
-        // Birth year validations
+        validateBirthYear(personDTO, errors);
+    }
+
+    // the rules that need no database, the bulk import checks the emails of many rows in one query
+    public void validateBirthYear(PersonDTO personDTO, Errors errors) {
         if (!errors.hasFieldErrors("birthYear")) {
             int year = Integer.parseInt(personDTO.getBirthYear());
             int currentYear = java.time.Year.now().getValue();
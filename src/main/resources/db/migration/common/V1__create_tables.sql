@@ -0,0 +1,24 @@
+-- Ids come from sequences in blocks of 50 (pooled-lo), so Hibernate can batch inserts
+CREATE SEQUENCE person_id_seq INCREMENT BY 50;
+CREATE SEQUENCE book_id_seq INCREMENT BY 50;
+
+CREATE TABLE Person (
+        id int DEFAULT nextval('person_id_seq') PRIMARY KEY,
+        full_name varchar(100) NOT NULL,
+        email varchar(100) UNIQUE NOT NULL,
+        birth_year int NOT NULL CHECK ( birth_year > 1900 AND birth_year <= EXTRACT(YEAR FROM CURRENT_DATE))
+);
+
+CREATE TABLE Book (
+        id int DEFAULT nextval('book_id_seq') PRIMARY KEY,
+        title varchar(100) NOT NULL,
+        author varchar(100) NOT NULL,
+        book_year int NOT NULL CHECK ( book_year > 1400 AND book_year <= EXTRACT(YEAR FROM CURRENT_DATE)),
+        person_id int REFERENCES Person(id) ON DELETE SET NULL,
+        taken_at TIMESTAMP,
+        version int NOT NULL DEFAULT 0
+);
+
+-- Books of a reader and overdue loans
+CREATE INDEX book_person_id_idx ON Book (person_id);
+CREATE INDEX book_taken_at_idx ON Book (taken_at);
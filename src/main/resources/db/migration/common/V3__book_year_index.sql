@@ -0,0 +1,2 @@
+-- Books sorted by year, with OFFSET and with keyset paging by (year, id)
+CREATE INDEX book_year_id_idx ON Book (book_year, id);
@@ -0,0 +1,36 @@
+-- Counters behind the statistics on the main page, changed by the services in the transaction of every
+-- checkout, return, new and deleted book (see statistics.LoanCounters) and recounted from Book now and then.
+-- A counter is spread over 8 rows and is their sum, so concurrent checkouts seldom wait for the same row.
+CREATE TABLE library_counter (
+        counter varchar(20) NOT NULL,
+        slot int NOT NULL,
+        total bigint NOT NULL,
+        PRIMARY KEY (counter, slot)
+);
+
+-- books on loan per reader and per author, the largest first for the top lists
+CREATE TABLE reader_loan_count (
+        person_id int PRIMARY KEY REFERENCES Person(id) ON DELETE CASCADE,
+        loans int NOT NULL
+);
+CREATE INDEX reader_loan_count_loans_idx ON reader_loan_count (loans DESC, person_id);
+
+CREATE TABLE author_loan_count (
+        author varchar(100) PRIMARY KEY,
+        loans int NOT NULL
+);
+CREATE INDEX author_loan_count_loans_idx ON author_loan_count (loans DESC, author);
+
+-- the counts of the existing rows; the overdue books are counted once the application has started
+INSERT INTO library_counter (counter, slot, total)
+VALUES ('books', 0, (SELECT count(*) FROM Book)),
+       ('loans', 0, (SELECT count(*) FROM Book WHERE person_id IS NOT NULL)),
+       ('overdue', 0, 0);
+INSERT INTO library_counter (counter, slot, total)
+SELECT c.counter, s.slot, 0 FROM library_counter c
+        CROSS JOIN (VALUES (1), (2), (3), (4), (5), (6), (7)) s (slot);
+
+INSERT INTO reader_loan_count (person_id, loans)
+SELECT person_id, count(*) FROM Book WHERE person_id IS NOT NULL GROUP BY person_id;
+INSERT INTO author_loan_count (author, loans)
+SELECT author, count(*) FROM Book WHERE person_id IS NOT NULL GROUP BY author;
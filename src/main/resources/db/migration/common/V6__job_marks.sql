@@ -0,0 +1,10 @@
+-- How far a background job has got, so its next run goes on from there instead of reading everything again.
+-- The overdue reminders (see notifications.OverdueReminders) keep the taken_at and the book id of the last
+-- loan they have sent a reminder for; the loans are read in (taken_at, id) order. Empty before the first run.
+CREATE TABLE job_mark (
+        job varchar(50) PRIMARY KEY,
+        taken_at timestamp,
+        book_id int
+);
+
+INSERT INTO job_mark (job) VALUES ('overdue-reminders');
@@ -0,0 +1,11 @@
+-- A chunk of the overdue reminders is claimed until claimed_until and sent without holding the lock on the mark;
+-- a live claim keeps a second instance off the job, an expired one (a crashed instance) is taken over.
+ALTER TABLE job_mark ADD COLUMN claimed_until timestamp;
+
+-- The reminders sent past the mark, when one before them failed: the next run skips them and sends only the
+-- failed ones. The rows at or below the mark are deleted as it moves past them.
+CREATE TABLE overdue_reminder_sent (
+        book_id int NOT NULL,
+        taken_at timestamp NOT NULL,
+        PRIMARY KEY (book_id, taken_at)
+);
@@ -0,0 +1,3 @@
+-- H2 has neither trigram nor expression indexes: the book search scans the table, and the reader
+-- picker walks the names in order until its page is full
+CREATE INDEX person_full_name_idx ON Person (full_name, id);
@@ -0,0 +1,19 @@
+-- The loan ledger as one plain table, H2 has no partitioning (see the postgresql migration)
+CREATE SEQUENCE loan_event_id_seq;
+
+CREATE TABLE loan_event (
+        id bigint DEFAULT nextval('loan_event_id_seq') PRIMARY KEY,
+        kind varchar(10) NOT NULL CHECK ( kind IN ('CHECKOUT', 'RETURN') ),
+        occurred_at timestamp NOT NULL,
+        book_id int NOT NULL,
+        person_id int NOT NULL,
+        taken_at timestamp NOT NULL
+);
+
+CREATE INDEX loan_event_book_idx ON loan_event (book_id, occurred_at DESC, id DESC);
+CREATE INDEX loan_event_person_idx ON loan_event (person_id, occurred_at DESC, id DESC);
+CREATE INDEX loan_event_occurred_at_idx ON loan_event (occurred_at);
+
+INSERT INTO loan_event (kind, occurred_at, book_id, person_id, taken_at)
+SELECT 'CHECKOUT', taken_at, id, person_id, taken_at FROM Book WHERE person_id IS NOT NULL AND taken_at IS NOT NULL
+ORDER BY taken_at;
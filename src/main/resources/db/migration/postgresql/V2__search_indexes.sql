@@ -0,0 +1,10 @@
+ALTER SEQUENCE person_id_seq OWNED BY Person.id;
+ALTER SEQUENCE book_id_seq OWNED BY Book.id;
+
+-- Book search (title/author fragment) is served by trigram GIN indexes
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX book_title_trgm_idx ON Book USING gin (lower(title) gin_trgm_ops);
+CREATE INDEX book_author_trgm_idx ON Book USING gin (lower(author) gin_trgm_ops);
+
+-- Reader picker on the book page (name prefix, case-insensitive)
+CREATE INDEX person_full_name_idx ON Person (upper(full_name) varchar_pattern_ops);
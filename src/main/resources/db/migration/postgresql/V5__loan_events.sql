@@ -0,0 +1,50 @@
+-- Every checkout and return, appended in the transaction of the loan change (see history.LoanLedger).
+-- The table is split into one partition per month of occurred_at: a query with a time bound reads only the
+-- months it needs, the newest first, and old months can be detached or dropped whole. No foreign keys,
+-- the history stays when a book or a reader is deleted.
+CREATE SEQUENCE loan_event_id_seq;
+
+CREATE TABLE loan_event (
+        id bigint NOT NULL DEFAULT nextval('loan_event_id_seq'),
+        kind varchar(10) NOT NULL CHECK ( kind IN ('CHECKOUT', 'RETURN') ),
+        occurred_at timestamp NOT NULL,
+        book_id int NOT NULL,
+        person_id int NOT NULL,
+        -- the start of the loan, on a return the loan's length is in the row
+        taken_at timestamp NOT NULL,
+        PRIMARY KEY (id, occurred_at)
+) PARTITION BY RANGE (occurred_at);
+
+ALTER SEQUENCE loan_event_id_seq OWNED BY loan_event.id;
+
+-- the history of a book and of a reader, newest first; each partition gets its own copy of the indexes
+CREATE INDEX loan_event_book_idx ON loan_event (book_id, occurred_at DESC, id DESC);
+CREATE INDEX loan_event_person_idx ON loan_event (person_id, occurred_at DESC, id DESC);
+-- time ranges over the whole ledger: the rows come in occurred_at order, a block range index stays tiny
+CREATE INDEX loan_event_occurred_at_idx ON loan_event USING brin (occurred_at);
+
+-- No default partition, it would keep PostgreSQL from reading the months in order. The application creates
+-- the months ahead (history.LedgerPartitions), these cover the loans running now and the next year.
+DO $$
+DECLARE
+    month date := date_trunc('month', coalesce((SELECT min(taken_at) FROM Book), now()))::date;
+BEGIN
+    WHILE month <= date_trunc('month', now() + interval '12 months') LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF loan_event FOR VALUES FROM (%L) TO (%L)',
+                       'loan_event_' || to_char(month, 'YYYY_MM'), month, (month + interval '1 month')::date);
+        month := (month + interval '1 month')::date;
+    END LOOP;
+END $$;
+
+-- append-only: rows are never changed; whole months can still be detached or dropped
+CREATE FUNCTION loan_event_append_only() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    RAISE EXCEPTION 'loan_event is append-only';
+END $$;
+CREATE TRIGGER loan_event_append_only BEFORE UPDATE OR DELETE ON loan_event
+        FOR EACH ROW EXECUTE FUNCTION loan_event_append_only();
+
+-- the loans running now begin the history
+INSERT INTO loan_event (kind, occurred_at, book_id, person_id, taken_at)
+SELECT 'CHECKOUT', taken_at, id, person_id, taken_at FROM Book WHERE person_id IS NOT NULL AND taken_at IS NOT NULL
+ORDER BY taken_at;
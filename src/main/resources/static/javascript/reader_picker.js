@@ -0,0 +1,55 @@
+// reader_picker.js
+
+// Fills the reader select of a free book page from /library/people/picker, one page at a time
+(function () {
+    var select = document.getElementById("person");
+    var prefixInput = document.getElementById("readerPrefix");
+    var moreButton = document.getElementById("moreReaders");
+
+    var pickerUrl = select.dataset.pickerUrl;
+    var pageSize = parseInt(select.dataset.pageSize, 10);
+    var page = 0;
+    var lastRequest = 0;
+    var typingTimer;
+
+    function loadReaders(append) {
+        var request = ++lastRequest;
+        var url = pickerUrl + "?prefix=" + encodeURIComponent(prefixInput.value.trim()) + "&page=" + page;
+
+        fetch(url)
+            .then(function (response) {
+                return response.json();
+            })
+            .then(function (readers) {
+                // the prefix was changed while this page was loading
+                if (request !== lastRequest) {
+                    return;
+                }
+                if (!append) {
+                    select.innerHTML = "";
+                }
+                readers.forEach(function (reader) {
+                    var option = document.createElement("option");
+                    option.value = reader.id;
+                    option.textContent = reader.fullName;
+                    select.appendChild(option);
+                });
+                moreButton.hidden = readers.length < pageSize;
+            });
+    }
+
+    prefixInput.addEventListener("input", function () {
+        clearTimeout(typingTimer);
+        typingTimer = setTimeout(function () {
+            page = 0;
+            loadReaders(false);
+        }, 250);
+    });
+
+    moreButton.addEventListener("click", function () {
+        page++;
+        loadReaders(true);
+    });
+
+    loadReaders(false);
+})();
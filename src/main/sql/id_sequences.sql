@@ -0,0 +1,16 @@
+-- Moves a database made by hand before the Flyway migrations from identity columns to the id sequences.
+-- The sequences continue after the highest id in use. Run it while the application is stopped,
+-- before the first start with Flyway, which then takes the database as version 2.
+BEGIN;
+
+ALTER TABLE Person ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE person_id_seq INCREMENT BY 50 OWNED BY Person.id;
+SELECT setval('person_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM Person), false);
+ALTER TABLE Person ALTER COLUMN id SET DEFAULT nextval('person_id_seq');
+
+ALTER TABLE Book ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE book_id_seq INCREMENT BY 50 OWNED BY Book.id;
+SELECT setval('book_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM Book), false);
+ALTER TABLE Book ALTER COLUMN id SET DEFAULT nextval('book_id_seq');
+
+COMMIT;
@@ -0,0 +1,51 @@
+package vova.group.id.LibraryBoot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PoolSizingTest {
+
+    @Test
+    public void testPoolSize() {
+        // (2 x cores) + 1
+        assertEquals(9, PoolSizing.poolSize(4, 90, 1));
+        assertEquals(33, PoolSizing.poolSize(16, 90, 1));
+        // the share of max_connections of one instance is smaller
+        assertEquals(30, PoolSizing.poolSize(16, 90, 3));
+        assertEquals(1, PoolSizing.poolSize(16, 0, 3));
+        // the cores of this machine
+        assertEquals(2 * Runtime.getRuntime().availableProcessors() + 1, PoolSizing.poolSize(0, 1000, 1));
+    }
+
+    @Test
+    public void testSizesHikariPool() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("library.datasource.database-cores", "8")
+                .withProperty("library.datasource.max-connections", "40")
+                .withProperty("library.datasource.instances", "4");
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            new PoolSizing(environment).postProcessAfterInitialization(dataSource, "dataSource");
+            assertEquals(10, dataSource.getMaximumPoolSize());
+            assertEquals(10, dataSource.getMinimumIdle());
+        }
+    }
+
+    @Test
+    public void testKeepsConfiguredPoolSize() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.datasource.hikari.maximum-pool-size", "25")
+                .withProperty("spring.datasource.hikari.minimum-idle", "5");
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setMaximumPoolSize(25);
+            dataSource.setMinimumIdle(5);
+            new PoolSizing(environment).postProcessAfterInitialization(dataSource, "dataSource");
+            assertEquals(25, dataSource.getMaximumPoolSize());
+            assertEquals(5, dataSource.getMinimumIdle());
+        }
+    }
+}
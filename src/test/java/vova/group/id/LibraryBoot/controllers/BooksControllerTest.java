@@ -4,18 +4,25 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
 import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.BookLoanResult;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.dto.OverdueLoan;
 import vova.group.id.LibraryBoot.models.Book;
 import vova.group.id.LibraryBoot.models.BookPageForm;
+import vova.group.id.LibraryBoot.models.BookSlice;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.services.BooksService;
-import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.util.BookMapper;
 import vova.group.id.LibraryBoot.util.BookValidator;
 
 import java.util.ArrayList;
@@ -35,17 +42,14 @@ public class BooksControllerTest {
     @Mock
     private BooksService booksService;
 
-    @Mock
-    private PeopleService peopleService;
-
     @Autowired
     private BookValidator bookValidator;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
 
     @Autowired
-    private BooksController booksController;
+    private CatalogueVersions catalogueVersions;
 
     private Book testBook;
     private BookDTO testBookDTO;
@@ -61,12 +65,13 @@ public class BooksControllerTest {
         testBooks = new ArrayList<>();
         testPerson = new Person();
         testPerson.setId(new Random().nextInt(300));
-        mockMvc = MockMvcBuilders.standaloneSetup(new BooksController(booksService, peopleService, bookValidator, modelMapper)).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(new BooksController(booksService, bookValidator, bookMapper, catalogueVersions)).build();
     }
 
     @Test
     public void testIndex() throws Exception {
-        when(booksService.index(any(BookPageForm.class))).thenReturn(testBooks);
+        List<BookSummary> testSummaries = new ArrayList<>();
+        when(booksService.index(any(BookPageForm.class))).thenReturn(new BookSlice(testSummaries));
 
         // test with not valid form parameters
         mockMvc.perform(MockMvcRequestBuilders.get("/library/books")
@@ -86,7 +91,7 @@ public class BooksControllerTest {
                         .param("sortByYear", "false"))
                 .andExpectAll(
                         model().size(2),
-                        model().attribute("books", testBooks),
+                        model().attribute("books", testSummaries),
                         model().attribute("form", instanceOf(BookPageForm.class)),
                         status().isOk(),
                         forwardedUrl("books/index")
@@ -96,7 +101,7 @@ public class BooksControllerTest {
         mockMvc.perform(MockMvcRequestBuilders.get("/library/books"))
                 .andExpectAll(
                         model().size(2),
-                        model().attribute("books", testBooks),
+                        model().attribute("books", testSummaries),
                         model().attribute("form", instanceOf(BookPageForm.class)),
                         status().isOk(),
                         forwardedUrl("books/index")
@@ -108,28 +113,28 @@ public class BooksControllerTest {
     @Test
     public void testShow() throws Exception {
         // Test show book without reader
-        when(booksService.show(testBook.getId())).thenReturn(testBook);
+        when(booksService.showWithReader(testBook.getId())).thenReturn(testBook);
         mockMvc.perform(MockMvcRequestBuilders.get("/library/books/{id}", testBook.getId()))
                 .andExpectAll(
                         model().size(3),
-                        model().attributeExists("person", "book", "people"),
+                        model().attributeExists("person", "book", "readerPickerPageSize"),
+                        model().attributeDoesNotExist("bookReader"),
                         status().isOk(),
                         forwardedUrl("books/show")
                 );
 
         // Test show book with reader
-        when(booksService.showBookReader(testBook.getId())).thenReturn(testPerson);
+        testBook.setReader(testPerson);
         mockMvc.perform(MockMvcRequestBuilders.get("/library/books/{id}", testBook.getId()))
                 .andExpectAll(
                         model().size(3),
-                        model().attributeExists("person", "book", "bookReader"),
+                        model().attributeExists("person", "book"),
+                        model().attribute("bookReader", testPerson),
                         status().isOk(),
                         forwardedUrl("books/show")
                 );
 
-        verify(booksService, times(2)).show(testBook.getId());
-        verify(booksService, times(2)).showBookReader(testBook.getId());
-        verify(peopleService, times(1)).index();
+        verify(booksService, times(2)).showWithReader(testBook.getId());
     }
 
     @Test
@@ -143,18 +148,39 @@ public class BooksControllerTest {
 
     @Test
     public void testFindBook() throws Exception {
-         when(booksService.index(anyString())).thenReturn(testBooks);
+         when(booksService.search("fragment", 0)).thenReturn(testBooks);
 
         mockMvc.perform(post("/library/books/search")
-                        .param("titleFragment", anyString()))
+                        .param("titleFragment", "fragment"))
                 .andExpectAll(
-                        model().size(1),
+                        model().size(4),
                         model().attribute("searchedBooks", testBooks),
+                        model().attribute("titleFragment", "fragment"),
+                        model().attribute("page", 0),
+                        model().attribute("hasNextPage", false),
                         status().isOk(),
                         forwardedUrl("books/search")
                 );
 
-        verify(booksService, times(1)).index(anyString());
+        verify(booksService, times(1)).search("fragment", 0);
+    }
+
+    @Test
+    public void testOverdue() throws Exception {
+        List<OverdueLoan> overdueLoans = new ArrayList<>();
+        when(booksService.overdueLoans(1)).thenReturn(overdueLoans);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/library/books/overdue").param("page", "1"))
+                .andExpectAll(
+                        model().size(3),
+                        model().attribute("overdueLoans", overdueLoans),
+                        model().attribute("page", 1),
+                        model().attribute("hasNextPage", false),
+                        status().isOk(),
+                        forwardedUrl("books/overdue")
+                );
+
+        verify(booksService, times(1)).overdueLoans(1);
     }
 
     @Test
@@ -212,7 +238,7 @@ public class BooksControllerTest {
     @Test
     public void testEditBook() throws Exception {
         when(booksService.show(testBook.getId())).thenReturn(testBook);
-        BookDTO bookDTO = modelMapper.map(testBook, BookDTO.class);
+        BookDTO bookDTO = bookMapper.toBookDTO(testBook);
 
         mockMvc.perform(MockMvcRequestBuilders.get("/library/books/{id}/edit", testBook.getId()))
                 .andExpectAll(
@@ -263,10 +289,28 @@ public class BooksControllerTest {
                         redirectedUrl("/library/books/" + testBookDTO.getId())
                 );
 
-        Book book = booksController.convertBookDTOToBook(testBookDTO);
+        Book book = bookMapper.toBook(testBookDTO);
         verify(booksService, times(1)).update(eq(testBookDTO.getId()), refEq(book));
     }
 
+    @Test
+    public void testUpdateStaleVersion() throws Exception {
+        testBookDTO.setTitle("test title");
+        testBookDTO.setAuthor("test author");
+        testBookDTO.setYear("1600");
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, testBookDTO.getId()))
+                .when(booksService).update(eq(testBookDTO.getId()), any(Book.class));
+
+        mockMvc.perform(patch("/library/books/{id}", testBookDTO.getId())
+                        .flashAttr("bookDTO", testBookDTO))
+                .andExpectAll(
+                        model().attributeErrorCount("bookDTO", 1),
+                        status().isOk(),
+                        forwardedUrl("books/edit")
+                );
+        verify(booksService, times(1)).update(eq(testBookDTO.getId()), any(Book.class));
+    }
+
     @Test
     public void testDelete() throws Exception {
         for (int i = 0; i < 3; i++) {
@@ -281,15 +325,62 @@ public class BooksControllerTest {
 
     @Test
     public void testAppointPerson() throws Exception {
+        when(booksService.appointPerson(testPerson, testBook.getId())).thenReturn(true);
         mockMvc.perform(patch("/library/books/{id}/appoint", testBook.getId())
                         .flashAttr("person", testPerson))
                 .andExpectAll(
                         status().is3xxRedirection(),
-                        redirectedUrl("/library/books/" + testBook.getId())
+                        redirectedUrl("/library/books/" + testBook.getId()),
+                        flash().attributeCount(0)
+                );
+        verify(booksService, times(1)).appointPerson(testPerson, testBook.getId());
+    }
+
+    @Test
+    public void testAppointPersonToTakenBook() throws Exception {
+        when(booksService.appointPerson(testPerson, testBook.getId())).thenReturn(false);
+        mockMvc.perform(patch("/library/books/{id}/appoint", testBook.getId())
+                        .flashAttr("person", testPerson))
+                .andExpectAll(
+                        status().is3xxRedirection(),
+                        redirectedUrl("/library/books/" + testBook.getId()),
+                        flash().attributeExists("conflict")
                 );
         verify(booksService, times(1)).appointPerson(testPerson, testBook.getId());
     }
 
+    @Test
+    public void testAppointPeople() throws Exception {
+        when(booksService.appointPeople(anyList()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Book.class, testBook.getId()))
+                .thenReturn(List.of(new BookLoanResult(testBook.getId(), BookLoanResult.Status.ALREADY_TAKEN)));
+        mockMvc.perform(patch("/library/books/appoint")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"bookId\": " + testBook.getId() + ", \"readerId\": " + testPerson.getId() + "}]"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].bookId").value(testBook.getId()),
+                        jsonPath("$[0].status").value("ALREADY_TAKEN")
+                );
+        // retried once after the optimistic locking failure
+        verify(booksService, times(2)).appointPeople(argThat((List<BookLoanRequest> loans) ->
+                loans.size() == 1 && loans.getFirst().getReaderId() == testPerson.getId()));
+    }
+
+    @Test
+    public void testFreeBooks() throws Exception {
+        when(booksService.freeBooks(List.of(testBook.getId())))
+                .thenReturn(List.of(new BookLoanResult(testBook.getId(), BookLoanResult.Status.DONE)));
+        mockMvc.perform(patch("/library/books/free")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + testBook.getId() + "]"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].status").value("DONE")
+                );
+        verify(booksService, times(1)).freeBooks(List.of(testBook.getId()));
+    }
+
     @Test
     public void testFreeBook() throws Exception {
         mockMvc.perform(patch("/library/books/{id}/free", testBook.getId()))
@@ -302,7 +393,6 @@ public class BooksControllerTest {
 
     @AfterEach
     public void tearDown() {
-        verifyNoMoreInteractions(peopleService);
         verifyNoMoreInteractions(booksService);
     }
 }
@@ -3,21 +3,27 @@ package vova.group.id.LibraryBoot.controllers;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import vova.group.id.LibraryBoot.services.StatisticsService;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.forwardedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 public class MainPageControllerTest {
     private MockMvc mockMvc;
 
+    @Autowired
+    private StatisticsService statisticsService;
+
     @BeforeEach
     public void setup() {
-        mockMvc = MockMvcBuilders.standaloneSetup(new MainPageController()).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(new MainPageController(statisticsService)).build();
     }
 
     @Test
@@ -25,7 +31,8 @@ public class MainPageControllerTest {
         mockMvc.perform(MockMvcRequestBuilders.get("/library"))
                 .andExpectAll(
                         status().isOk(),
-                        forwardedUrl("index")
+                        forwardedUrl("index"),
+                        model().attributeExists("statistics")
                 );
     }
 }
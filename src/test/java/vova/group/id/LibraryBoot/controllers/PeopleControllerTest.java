@@ -4,16 +4,18 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import vova.group.id.LibraryBoot.cache.CatalogueVersions;
 import vova.group.id.LibraryBoot.dto.PersonDTO;
-import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
+import vova.group.id.LibraryBoot.dto.LoanSummary;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.util.PersonMapper;
 import vova.group.id.LibraryBoot.util.PersonValidator;
 
 import java.util.ArrayList;
@@ -36,15 +38,15 @@ public class PeopleControllerTest {
     private PersonValidator personValidator;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private PersonMapper personMapper;
 
     @Autowired
-    private PeopleController peopleController;
+    private CatalogueVersions catalogueVersions;
 
     private Person testPerson;
     private PersonDTO testPersonDTO;
-    private List<Person> testPeople;
-    private List<Book> testBooks;
+    private List<PersonSummary> testPeople;
+    private List<LoanSummary> testBooks;
 
     @BeforeEach
     public void setup() {
@@ -54,7 +56,7 @@ public class PeopleControllerTest {
         testPersonDTO = new PersonDTO();
         testPersonDTO.setId(testPerson.getId());
         testBooks = new ArrayList<>();
-        mockMvc = MockMvcBuilders.standaloneSetup(new PeopleController(peopleService, personValidator, modelMapper)).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(new PeopleController(peopleService, personValidator, personMapper, catalogueVersions)).build();
     }
 
     @Test
@@ -98,6 +100,21 @@ public class PeopleControllerTest {
                 );
     }
 
+    @Test
+    public void testPicker() throws Exception {
+        when(peopleService.pick("jo", 1)).thenReturn(new ArrayList<>());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/library/people/picker")
+                        .param("prefix", "jo")
+                        .param("page", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().json("[]")
+                );
+
+        verify(peopleService, times(1)).pick("jo", 1);
+    }
+
     @Test
     public void createTest() throws Exception {
         // test an empty new person
@@ -142,7 +159,7 @@ public class PeopleControllerTest {
     @Test
     public void editTest() throws Exception {
         when(peopleService.show(anyInt())).thenReturn(testPerson);
-        PersonDTO expectedDTO = peopleController.convertPersonToPersonDTO(testPerson);
+        PersonDTO expectedDTO = personMapper.toPersonDTO(testPerson);
 
         mockMvc.perform(MockMvcRequestBuilders.get("/library/people/{id}/edit", testPerson.getId()))
                 .andExpectAll(
@@ -196,7 +213,7 @@ public class PeopleControllerTest {
                 );
 
 
-        Person personToBeAddedToDB = peopleController.convertPersonDTOToPerson(testPersonDTO);
+        Person personToBeAddedToDB = personMapper.toPerson(testPersonDTO);
         verify(peopleService, times(1)).update(eq(testPersonDTO.getId()), refEq(personToBeAddedToDB));
     }
 
@@ -0,0 +1,137 @@
+package vova.group.id.LibraryBoot.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class BulkImportTest extends H2databaseInitTest {
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PeopleService peopleService;
+
+    @Autowired
+    public BulkImportTest(WebApplicationContext webApplicationContext) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void testImportBooksFromCsv() throws Exception {
+        String csv = """
+                title,author,year
+                Kobzar,Taras Shevchenko,1840
+                "Tiger hunters, part one",Ivan Bagryany,1946
+                Old Chronicle,Unknown Monk,1300
+                ,Nobody,1950
+                Boa constrictor,Ivan Franko,1907
+                """;
+
+        mockMvc.perform(post("/library/admin/import/books").contentType(CSV).content(csv))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.kind").value("books"),
+                        jsonPath("$.rowsRead").value(5),
+                        jsonPath("$.imported").value(3),
+                        jsonPath("$.rejected").value(2),
+                        jsonPath("$.errors[0].row").value(3),
+                        jsonPath("$.errors[0].field").value("year"),
+                        jsonPath("$.errors[1].row").value(4),
+                        jsonPath("$.finished").value(true));
+
+        assertEquals(5, countRows("Book"));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM Book WHERE title = 'Tiger hunters, part one' AND person_id IS NULL", Integer.class));
+    }
+
+    @Test
+    public void testImportPeopleFromJsonChecksEmails() throws Exception {
+        // warm the cached people list, the import has to invalidate it
+        assertEquals(3, peopleService.index().size());
+
+        String json = """
+                [{"fullName": "Lesya Ukrainka", "birthYear": "1971", "email": "lesya@gmail.com"},
+                 {"fullName": "Same Email", "birthYear": "1980", "email": "test1@gmail.com"},
+                 {"fullName": "Twice Here", "birthYear": "1980", "email": "lesya@gmail.com"},
+                 {"fullName": "bad", "birthYear": "1880", "email": "not an email"}]
+                """;
+
+        mockMvc.perform(post("/library/admin/import/people").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.imported").value(1),
+                        jsonPath("$.rejected").value(3),
+                        jsonPath("$.failure").doesNotExist());
+
+        mockMvc.perform(get("/library/admin/import"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.kind").value("people"),
+                        jsonPath("$.rowsPerSecond").value(notNullValue()));
+
+        List<PersonSummary> people = peopleService.index();
+        assertEquals(4, people.size());
+        assertEquals("Lesya Ukrainka", people.getLast().getFullName());
+    }
+
+    @Test
+    public void testImportInChunks() throws Exception {
+        StringBuilder csv = new StringBuilder("fullName,birthYear,email\n");
+        for (int i = 0; i < 2500; i++)
+            csv.append("Reader Name,1990,reader").append(i).append("@gmail.com\n");
+
+        mockMvc.perform(post("/library/admin/import/people").contentType(CSV).content(csv.toString()))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.imported").value(2500),
+                        jsonPath("$.rejected").value(0));
+
+        assertEquals(2503, countRows("Person"));
+    }
+
+    @Test
+    public void testBrokenFileKeepsEarlierChunks() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1500; i++)
+            json.append("{\"title\": \"Title ").append(i).append("\", \"author\": \"Some Author\", \"year\": \"1950\"},");
+        json.append("{\"title\": ");
+
+        mockMvc.perform(post("/library/admin/import/books").contentType(MediaType.APPLICATION_JSON).content(json.toString()))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.finished").value(true),
+                        jsonPath("$.failure").value(notNullValue()));
+
+        // the first full chunk was committed before the broken row
+        assertTrue(countRows("Book") >= 1002);
+    }
+
+    private int countRows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,111 @@
+package vova.group.id.LibraryBoot.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class CatalogueExportTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public CatalogueExportTest(WebApplicationContext webApplicationContext) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void testExportCsv() throws Exception {
+        jdbcTemplate.update("INSERT INTO Book (title, author, book_year) VALUES ('Dogs, cats and \"mice\"', 'Some Author', 1950)");
+
+        String csv = mockMvc.perform(get("/library/admin/export/books"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentTypeCompatibleWith("text/csv"),
+                        header().string("Content-Disposition", "attachment; filename=books.csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = csv.split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("id,title,author,year,readerId,readerName,takenAt", lines[0]);
+        assertEquals("1,\"Test Title1\",\"Ivan Bagryany\",1946,,,", lines[1]);
+        assertTrue(lines[2].startsWith("2,\"Test Title2\",\"Taras Shevchenko\",1840,1,\"Test Name1\",2025-01-01"));
+        assertTrue(lines[3].endsWith(",\"Dogs, cats and \"\"mice\"\"\",\"Some Author\",1950,,,"));
+    }
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        String ndjson = mockMvc.perform(get("/library/admin/export/books").param("format", "ndjson"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(ndjson.endsWith("\n"));
+        List<JsonNode> books = new ArrayList<>();
+        for (String line : ndjson.split("\n"))
+            books.add(objectMapper.readTree(line));
+
+        assertEquals(2, books.size());
+        assertTrue(books.get(0).get("readerId").isNull());
+        assertEquals(1, books.get(1).get("readerId").asInt());
+        assertEquals("Test Name1", books.get(1).get("readerName").asText());
+    }
+
+    @Test
+    public void testExportSkipsSecondLevelCache() throws Exception {
+        jdbcTemplate.update("INSERT INTO Book (title, author, book_year) " +
+                "SELECT 'Title ' || X, 'Some Author', 1950 FROM SYSTEM_RANGE(1, 3000)");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        String csv = mockMvc.perform(get("/library/admin/export/books"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(3003, csv.split("\n").length);
+        assertEquals(0, statistics.getDomainDataRegionStatistics(LibraryCache.BOOK_REGION).getPutCount());
+        assertEquals(0, statistics.getDomainDataRegionStatistics(LibraryCache.PERSON_REGION).getPutCount());
+    }
+
+    @Test
+    public void testExportCanBeImportedBack() throws Exception {
+        byte[] ndjson = mockMvc.perform(get("/library/admin/export/books").param("format", "ndjson"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        mockMvc.perform(post("/library/admin/import/books").contentType("application/json").content(ndjson))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.imported").value(2));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Book", Integer.class));
+    }
+}
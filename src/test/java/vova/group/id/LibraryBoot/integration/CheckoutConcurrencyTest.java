@@ -0,0 +1,176 @@
+package vova.group.id.LibraryBoot.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.history.LoanLedger;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.utils.ConcurrentBookChange;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Many librarians giving away the same book at once.
+ * Book 1 starts free, the three test readers compete for it.
+ */
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class CheckoutConcurrencyTest extends H2databaseInitTest {
+    private static final Logger log = LoggerFactory.getLogger(CheckoutConcurrencyTest.class);
+
+    private static final int BOOK_ID = 1;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private LoanLedger loanLedger;
+
+    private final ConcurrentBookChange concurrentChange;
+
+    @Autowired
+    public CheckoutConcurrencyTest(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   EntityManagerFactory entityManagerFactory) {
+        concurrentChange = new ConcurrentBookChange(jdbcTemplate, transactionManager, entityManagerFactory);
+    }
+
+    @Test
+    public void testOnlyOneReaderGetsTheBook() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 20; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> attempts = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    Person reader = reader(i);
+                    attempts.add(executor.submit(() -> {
+                        start.await();
+                        return booksService.appointPerson(reader, BOOK_ID);
+                    }));
+                }
+                start.countDown();
+
+                int winners = 0;
+                for (Future<Boolean> attempt : attempts)
+                    if (attempt.get(10, TimeUnit.SECONDS))
+                        winners++;
+                assertEquals(1, winners, "round " + round);
+                assertNotNull(readerId());
+
+                booksService.free(BOOK_ID);
+                assertNull(readerId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNoLostUpdatesUnderContention() throws Exception {
+        int attemptsPerThread = 100;
+        AtomicInteger checkouts = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                Person reader = reader(i);
+                workers.add(executor.submit(() -> {
+                    for (int j = 0; j < attemptsPerThread; j++) {
+                        if (booksService.appointPerson(reader, BOOK_ID)) {
+                            checkouts.incrementAndGet();
+                            // only the reader who holds the book brings it back
+                            booksService.free(BOOK_ID);
+                        } else {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers)
+                worker.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // every checkout and every return bumped the version exactly once
+        assertEquals(THREADS * attemptsPerThread, checkouts.get() + conflicts.get());
+        assertEquals(2 * checkouts.get(), version());
+        assertNull(readerId());
+        log.info("{} checkouts, {} conflicts from {} threads in {} ms ({} attempts/s)",
+                checkouts.get(), conflicts.get(), THREADS, millis,
+                THREADS * attemptsPerThread * 1000L / Math.max(millis, 1));
+    }
+
+    @Test
+    public void testStaleEditIsRejected() {
+        Book stale = booksService.show(BOOK_ID);
+        booksService.appointPerson(reader(0), BOOK_ID);
+
+        stale.setTitle("Stale Title");
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> booksService.update(BOOK_ID, stale));
+        assertEquals("Test Title1", booksService.show(BOOK_ID).getTitle());
+    }
+
+    @Test
+    public void testBulkChangeOfAChangedBookIsRejected() {
+        // the versioned updates are flushed after another transaction has changed the book
+        doAnswer(concurrentChange.onFirstCalls(1)).when(loanLedger).checkedOut(anyInt(), anyInt(), any());
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> booksService.appointPeople(List.of(new BookLoanRequest(BOOK_ID, 3))));
+        assertNull(readerId());
+
+        doAnswer(concurrentChange.onFirstCalls(1)).when(loanLedger).returned(anyInt(), anyInt(), any(), any());
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> booksService.freeBooks(List.of(2)));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT person_id FROM Book WHERE id = 2", Integer.class));
+    }
+
+    @Test
+    public void testDeleteOfAChangedBookIsRejected() {
+        // book 2 is on loan, so the counters are written before the commit and flush the delete
+        doAnswer(concurrentChange.onFirstCalls(1)).when(loanLedger).returned(anyInt(), anyInt(), any(), any());
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> booksService.delete(2));
+        assertNotNull(booksService.show(2));
+    }
+
+    private static Person reader(int i) {
+        Person reader = new Person();
+        reader.setId(i % 3 + 1);
+        return reader;
+    }
+
+    private Integer readerId() {
+        return jdbcTemplate.queryForObject("SELECT person_id FROM Book WHERE id = ?", Integer.class, BOOK_ID);
+    }
+
+    private int version() {
+        return jdbcTemplate.queryForObject("SELECT version FROM Book WHERE id = ?", Integer.class, BOOK_ID);
+    }
+}
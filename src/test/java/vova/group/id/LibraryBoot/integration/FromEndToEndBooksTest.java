@@ -1,25 +1,34 @@
 package vova.group.id.LibraryBoot.integration;
 
+import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.ModelAndView;
 import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.history.LoanLedger;
 import vova.group.id.LibraryBoot.models.Book;
 import vova.group.id.LibraryBoot.models.BookPageForm;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.services.BooksService;
 import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.utils.ConcurrentBookChange;
 import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -37,9 +46,17 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
     @Autowired
     private PeopleService peopleService;
 
+    @MockitoSpyBean
+    private LoanLedger loanLedger;
+
+    private final ConcurrentBookChange concurrentChange;
+
     @Autowired
-    public FromEndToEndBooksTest(WebApplicationContext webApplicationContext) {
+    public FromEndToEndBooksTest(WebApplicationContext webApplicationContext, JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 EntityManagerFactory entityManagerFactory) {
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        concurrentChange = new ConcurrentBookChange(jdbcTemplate, transactionManager, entityManagerFactory);
     }
 
     @Test
@@ -56,7 +73,7 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("books/index", modelAndView.getViewName());
 
-        List<Book> receivedBooks = (List<Book>) modelAndView.getModel().get("books");
+        List<BookSummary> receivedBooks = (List<BookSummary>) modelAndView.getModel().get("books");
         assertNotNull(receivedBooks);
         assertEquals(2, receivedBooks.size());
     }
@@ -75,7 +92,7 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("books/index", modelAndView.getViewName());
 
-        List<Book> receivedBooks = (List<Book>) modelAndView.getModel().get("books");
+        List<BookSummary> receivedBooks = (List<BookSummary>) modelAndView.getModel().get("books");
         assertNotNull(receivedBooks);
         assertEquals(1, receivedBooks.size());
         assertEquals("Test Title2", receivedBooks.getFirst().getTitle());
@@ -95,7 +112,7 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("books/index", modelAndView.getViewName());
 
-        List<Book> receivedBooks = (List<Book>) modelAndView.getModel().get("books");
+        List<BookSummary> receivedBooks = (List<BookSummary>) modelAndView.getModel().get("books");
         assertNotNull(receivedBooks);
         assertEquals(2, receivedBooks.size());
         assertEquals("Test Title2", receivedBooks.get(0).getTitle());
@@ -116,19 +133,61 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("books/index", modelAndView.getViewName());
 
-        List<Book> receivedBooks = (List<Book>) modelAndView.getModel().get("books");
+        List<BookSummary> receivedBooks = (List<BookSummary>) modelAndView.getModel().get("books");
         assertNotNull(receivedBooks);
         assertEquals(2, receivedBooks.size());
         assertEquals("Test Title2", receivedBooks.get(0).getTitle());
         assertEquals("Test Title1", receivedBooks.get(1).getTitle());
     }
 
+    @Test
+    public void testIndexWithCursor() throws Exception {
+        mvcResult = mockMvc.perform(get("/library/books")
+                        .flashAttr("form", new BookPageForm("1", true, null)))
+                .andExpectAll(
+                        model().size(3),
+                        model().attributeExists("books", "form", "nextCursor"),
+                        status().isOk())
+                .andReturn();
+
+        modelAndView = mvcResult.getModelAndView();
+        assertNotNull(modelAndView);
+        List<BookSummary> receivedBooks = (List<BookSummary>) modelAndView.getModel().get("books");
+        assertEquals(1, receivedBooks.size());
+        assertEquals("Test Title2", receivedBooks.getFirst().getTitle());
+
+        String nextCursor = (String) modelAndView.getModel().get("nextCursor");
+        mvcResult = mockMvc.perform(get("/library/books")
+                        .flashAttr("form", new BookPageForm("1", true, nextCursor)))
+                .andExpectAll(
+                        model().size(3),
+                        model().attributeExists("books", "form", "prevCursor"),
+                        status().isOk())
+                .andReturn();
+
+        modelAndView = mvcResult.getModelAndView();
+        assertNotNull(modelAndView);
+        receivedBooks = (List<BookSummary>) modelAndView.getModel().get("books");
+        assertEquals(1, receivedBooks.size());
+        assertEquals("Test Title1", receivedBooks.getFirst().getTitle());
+    }
+
+    @Test
+    public void testIndexWithBrokenCursor() throws Exception {
+        mockMvc.perform(get("/library/books")
+                        .param("cursor", "broken"))
+                .andExpectAll(
+                        model().attributeHasFieldErrors("form", "cursorValid"),
+                        status().isOk());
+    }
+
     @Test
     public void testShowBookWithoutReader() throws Exception {
         mvcResult = mockMvc.perform(get("/library/books/{id}", 1))
                 .andExpectAll(
                         model().size(3),
-                        model().attributeExists("book", "people", "person"),
+                        model().attributeExists("book", "person", "readerPickerPageSize"),
+                        model().attributeDoesNotExist("bookReader"),
                         status().isOk())
                 .andReturn();
 
@@ -136,10 +195,6 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("books/show", modelAndView.getViewName());
 
-        List<Person> receivedPeople = (List<Person>) modelAndView.getModel().get("people");
-        assertNotNull(receivedPeople);
-        assertEquals(3, receivedPeople.size());
-
         Book receivedBook = (Book) modelAndView.getModel().get("book");
         assertNotNull(receivedBook);
         assertEquals("Test Title1", receivedBook.getTitle());
@@ -173,7 +228,7 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         mvcResult = mockMvc.perform(post("/library/books/search")
                 .param("titleFragment", "not existing book fragment"))
                 .andExpectAll(
-                        model().size(1),
+                        model().size(4),
                         model().attributeExists("searchedBooks"),
                         status().isOk())
                 .andReturn();
@@ -192,7 +247,7 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         mvcResult = mockMvc.perform(post("/library/books/search")
                         .param("titleFragment", "Test"))
                 .andExpectAll(
-                        model().size(1),
+                        model().size(4),
                         model().attributeExists("searchedBooks"),
                         status().isOk())
                 .andReturn();
@@ -207,10 +262,33 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertEquals("Test Title2", receivedBooks.get(1).getTitle());
     }
 
+    @Test
+    public void testFindBookByAuthor() throws Exception {
+        mvcResult = mockMvc.perform(post("/library/books/search")
+                        .param("titleFragment", "shevch"))
+                .andExpectAll(
+                        model().attributeExists("searchedBooks"),
+                        status().isOk())
+                .andReturn();
+
+        modelAndView = mvcResult.getModelAndView();
+        assertNotNull(modelAndView);
+
+        List<Book> receivedBooks = (List<Book>) modelAndView.getModel().get("searchedBooks");
+        assertEquals(1, receivedBooks.size());
+        assertEquals("Test Title2", receivedBooks.getFirst().getTitle());
+    }
+
+    @Test
+    public void testFindBookWithWildcardCharacters() {
+        assertTrue(booksService.search("%", 0).isEmpty());
+        assertTrue(booksService.search("Test_Title", 0).isEmpty());
+    }
+
     @Test
     public void testCreateWithNotValidYear() throws Exception {
         BookPageForm bookPageForm = new BookPageForm();
-        List<Book> receivedBooksInitial = booksService.index(bookPageForm);
+        List<BookSummary> receivedBooksInitial = booksService.index(bookPageForm).getBooks();
         assertEquals(2, receivedBooksInitial.size());
 
         BookDTO bookDTO = new BookDTO( "Not Valid Book", "Test Author", "1300");
@@ -226,14 +304,14 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("books/new", modelAndView.getViewName());
 
-        List<Book> receivedBooksAfterCreate = booksService.index(bookPageForm);
+        List<BookSummary> receivedBooksAfterCreate = booksService.index(bookPageForm).getBooks();
         assertEquals(2, receivedBooksAfterCreate.size());
     }
 
     @Test
     public void testCreateWithCorrectPerson() throws Exception {
         BookPageForm bookPageForm = new BookPageForm();
-        List<Book> receivedBooksInitial = booksService.index(bookPageForm);
+        List<BookSummary> receivedBooksInitial = booksService.index(bookPageForm).getBooks();
         assertEquals(2, receivedBooksInitial.size());
 
         BookDTO bookDTO = new BookDTO( "Valid Book", "Test Author", "1700");
@@ -246,7 +324,7 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("redirect:/library/books", modelAndView.getViewName());
 
-        List<Book> receivedBooksAfterCreate = booksService.index(bookPageForm);
+        List<BookSummary> receivedBooksAfterCreate = booksService.index(bookPageForm).getBooks();
         assertEquals(3, receivedBooksAfterCreate.size());
         assertEquals("Valid Book", receivedBooksAfterCreate.get(2).getTitle());
         assertEquals("Test Author", receivedBooksAfterCreate.get(2).getAuthor());
@@ -359,7 +437,7 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
 
     @Test
     public void testDelete() throws Exception {
-        List<Book> booksBeforeDelete = booksService.index(new BookPageForm());
+        List<BookSummary> booksBeforeDelete = booksService.index(new BookPageForm()).getBooks();
         assertEquals(2, booksBeforeDelete.size());
 
         mockMvc.perform(delete("/library/books/{id}", 2))
@@ -370,7 +448,75 @@ public class FromEndToEndBooksTest extends H2databaseInitTest {
 
         Book delatedBook = booksService.show(2);
         assertNull(delatedBook);
-        List<Book> booksAfterDelete = booksService.index(new BookPageForm());
+        List<BookSummary> booksAfterDelete = booksService.index(new BookPageForm()).getBooks();
         assertEquals(1, booksAfterDelete.size());
     }
+
+    @Test
+    public void testAppointPeople() throws Exception {
+        mockMvc.perform(patch("/library/books/appoint")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"bookId\": 1, \"readerId\": 99}, {\"bookId\": 1, \"readerId\": 2}, " +
+                                "{\"bookId\": 1, \"readerId\": 3}, {\"bookId\": 2, \"readerId\": 2}, " +
+                                "{\"bookId\": 99, \"readerId\": 2}]"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(5),
+                        jsonPath("$[0].status").value("READER_NOT_FOUND"),
+                        jsonPath("$[1].status").value("DONE"),
+                        jsonPath("$[2].status").value("ALREADY_TAKEN"),
+                        jsonPath("$[3].status").value("ALREADY_TAKEN"),
+                        jsonPath("$[4].bookId").value(99),
+                        jsonPath("$[4].status").value("BOOK_NOT_FOUND"));
+
+        Book book = booksService.showWithReader(1);
+        assertEquals(2, book.getReader().getId());
+        assertNotNull(book.getTakenAt());
+        assertEquals(1, booksService.showWithReader(2).getReader().getId());
+    }
+
+    @Test
+    public void testFreeBooks() throws Exception {
+        mockMvc.perform(patch("/library/books/free")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, 1, 99]"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].status").value("DONE"),
+                        jsonPath("$[1].status").value("ALREADY_FREE"),
+                        jsonPath("$[2].status").value("BOOK_NOT_FOUND"));
+
+        Book book = booksService.showWithReader(2);
+        assertNull(book.getReader());
+        assertNull(book.getTakenAt());
+    }
+
+    @Test
+    public void testAppointPeopleRetriedAfterARealConflict() throws Exception {
+        // another librarian changes book 1 during the first attempt, the second one gives it away
+        doAnswer(concurrentChange.onFirstCalls(1)).when(loanLedger).checkedOut(anyInt(), anyInt(), any());
+        mockMvc.perform(patch("/library/books/appoint")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"bookId\": 1, \"readerId\": 2}]"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].status").value("DONE"));
+
+        verify(loanLedger, times(2)).checkedOut(eq(1), eq(2), any());
+        assertEquals(2, booksService.showWithReader(1).getReader().getId());
+    }
+
+    @Test
+    public void testFreeBooksRetriedAfterARealConflict() throws Exception {
+        doAnswer(concurrentChange.onFirstCalls(1)).when(loanLedger).returned(anyInt(), anyInt(), any(), any());
+        mockMvc.perform(patch("/library/books/free")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2]"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].status").value("DONE"));
+
+        verify(loanLedger, times(2)).returned(eq(2), eq(1), any(), any());
+        assertNull(booksService.showWithReader(2).getReader());
+    }
 }
@@ -10,7 +10,8 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.ModelAndView;
 import vova.group.id.LibraryBoot.dto.PersonDTO;
-import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
+import vova.group.id.LibraryBoot.dto.LoanSummary;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.services.PeopleService;
 import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
@@ -19,6 +20,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -51,10 +53,33 @@ public class FromEndToEndPeopleTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("people/index", modelAndView.getViewName());
 
-        List<Person> receivedPeople = (List<Person>) modelAndView.getModel().get("people");
+        List<PersonSummary> receivedPeople = (List<PersonSummary>) modelAndView.getModel().get("people");
         assertEquals(3, receivedPeople.size());
     }
 
+    @Test
+    public void testReaderPicker() throws Exception {
+        mockMvc.perform(get("/library/people/picker").param("prefix", "test name"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(3),
+                        jsonPath("$[0].id").value(1),
+                        jsonPath("$[0].fullName").value("Test Name1"),
+                        jsonPath("$[0].email").doesNotExist());
+
+        mockMvc.perform(get("/library/people/picker").param("prefix", "Test Name2"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$[0].id").value(2));
+
+        // the prefix is not a LIKE pattern
+        mockMvc.perform(get("/library/people/picker").param("prefix", "%"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(0));
+    }
+
     @Test
     public void testShowPersonWithoutBooks() throws Exception {
         mvcResult = mockMvc.perform(get("/library/people/{id}", 3))
@@ -74,7 +99,7 @@ public class FromEndToEndPeopleTest extends H2databaseInitTest {
         assertEquals(1999, receivedPerson.getBirthYear());
         assertEquals("test3@gmail.com", receivedPerson.getEmail());
 
-        List<Book> receivedBooks = (List<Book>) modelAndView.getModel().get("personBooks");
+        List<LoanSummary> receivedBooks = (List<LoanSummary>) modelAndView.getModel().get("personBooks");
         assertNotNull(receivedBooks);
         assertEquals(0, receivedBooks.size());
     }
@@ -98,15 +123,17 @@ public class FromEndToEndPeopleTest extends H2databaseInitTest {
         assertEquals(1970, receivedPerson.getBirthYear());
         assertEquals("test1@gmail.com", receivedPerson.getEmail());
 
-        List<Book> receivedBooks = (List<Book>) modelAndView.getModel().get("personBooks");
+        List<LoanSummary> receivedBooks = (List<LoanSummary>) modelAndView.getModel().get("personBooks");
         assertNotNull(receivedBooks);
         assertEquals(1, receivedBooks.size());
         assertEquals("Test Title2", receivedBooks.getFirst().getTitle());
+        // taken on 2025-01-01, long past the loan period
+        assertTrue(receivedBooks.getFirst().getExpired());
     }
 
     @Test
     public void testCreateWithNotUniqueEmail() throws Exception {
-        List<Person> receivedPeopleInitial = peopleService.index();
+        List<PersonSummary> receivedPeopleInitial = peopleService.index();
         assertEquals(3, receivedPeopleInitial.size());
 
         PersonDTO testPersonDTO = new PersonDTO(4, "Test Name", "1980", "test1@gmail.com");
@@ -122,13 +149,13 @@ public class FromEndToEndPeopleTest extends H2databaseInitTest {
         assertNotNull(modelAndView);
         assertEquals("people/new", modelAndView.getViewName());
 
-        List<Person> receivedPeopleAfterCreate = peopleService.index();
+        List<PersonSummary> receivedPeopleAfterCreate = peopleService.index();
         assertEquals(3, receivedPeopleAfterCreate.size());
     }
 
     @Test
     public void testCreateWithCorrectPerson() throws Exception {
-        List<Person> receivedPeopleInitial = peopleService.index();
+        List<PersonSummary> receivedPeopleInitial = peopleService.index();
         assertEquals(3, receivedPeopleInitial.size());
 
         PersonDTO testPersonDTO = new PersonDTO("Test Name", "1980", "test4@gmail.com");
@@ -138,9 +165,9 @@ public class FromEndToEndPeopleTest extends H2databaseInitTest {
                         status().is3xxRedirection(),
                         redirectedUrl("/library/people"));
 
-        List<Person> receivedPeopleAfterCreate = peopleService.index();
+        List<PersonSummary> receivedPeopleAfterCreate = peopleService.index();
         assertEquals(4, receivedPeopleAfterCreate.size());
-        assertEquals("test4@gmail.com", receivedPeopleAfterCreate.get(3).getEmail());
+        assertEquals(peopleService.show("test4@gmail.com").getId(), receivedPeopleAfterCreate.get(3).getId());
     }
 
     @Test
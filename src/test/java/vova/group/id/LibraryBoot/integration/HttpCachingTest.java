@@ -0,0 +1,163 @@
+package vova.group.id.LibraryBoot.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Repeated page views answered with 304 from the table versions, before any SQL, and the static resources
+ * served under fingerprinted names for good.
+ */
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class HttpCachingTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+    private final Statistics statistics;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private PeopleService peopleService;
+
+    @Autowired
+    public HttpCachingTest(WebApplicationContext webApplicationContext, EntityManagerFactory entityManagerFactory,
+                           FilterRegistrationBean<ResourceUrlEncodingFilter> resourceUrlEncodingFilter) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilter(resourceUrlEncodingFilter.getFilter())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testBooksPageNotModified() throws Exception {
+        MvcResult first = mockMvc.perform(get("/library/books"))
+                .andExpectAll(
+                        status().isOk(),
+                        header().exists(HttpHeaders.ETAG),
+                        header().exists(HttpHeaders.LAST_MODIFIED),
+                        header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        statistics.clear();
+        mockMvc.perform(get("/library/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isNotModified(),
+                        content().string(""));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(get("/library/books")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isNotModified());
+
+        booksService.save(new Book("Kobzar", "Taras Shevchenko", 1840));
+        mockMvc.perform(get("/library/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString("Kobzar")));
+    }
+
+    @Test
+    public void testBookPageFollowsReaderChanges() throws Exception {
+        String etag = mockMvc.perform(get("/library/books/2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/library/books/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // the book is not changed, the name of its reader is
+        Person reader = peopleService.show(1);
+        reader.setFullName("Renamed Reader");
+        peopleService.update(1, reader);
+        mockMvc.perform(get("/library/books/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString("Renamed Reader")));
+    }
+
+    @Test
+    public void testBookPageShowsConflictMessage() throws Exception {
+        String etag = mockMvc.perform(get("/library/books/2"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult appoint = mockMvc.perform(patch("/library/books/2/appoint").param("id", "3"))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        mockMvc.perform(get("/library/books/2")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .flashAttrs(appoint.getFlashMap()))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString("already been given")));
+    }
+
+    @Test
+    public void testReaderPageNotModifiedUntilLoansChange() throws Exception {
+        String etag = mockMvc.perform(get("/library/people/3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        statistics.clear();
+        mockMvc.perform(get("/library/people/3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        Person reader = new Person();
+        reader.setId(3);
+        booksService.appointPerson(reader, 1);
+        mockMvc.perform(get("/library/people/3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString("Test Title1")));
+    }
+
+    @Test
+    public void testFingerprintedResources() throws Exception {
+        String page = mockMvc.perform(get("/library/books"))
+                .andReturn().getResponse().getContentAsString();
+        Matcher css = Pattern.compile("/css/books-[0-9a-f]{32}\\.css").matcher(page);
+        assertTrue(css.find(), page);
+
+        String stylesheet = mockMvc.perform(get(css.group()))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=31536000")),
+                        header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andReturn().getResponse().getContentAsString();
+        // the image of the stylesheet is fingerprinted as well
+        Matcher image = Pattern.compile("images/books-[0-9a-f]{32}\\.jpg").matcher(stylesheet);
+        assertTrue(image.find(), stylesheet);
+
+        mockMvc.perform(get("/" + image.group().replace("../", "")))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+}
@@ -0,0 +1,77 @@
+package vova.group.id.LibraryBoot.integration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.search.BookSearchIndex;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = "library.search.in-memory.enabled=true")
+public class InMemorySearchTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private BookSearchIndex searchIndex;
+
+    @Autowired
+    public InMemorySearchTest(WebApplicationContext webApplicationContext) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @BeforeEach
+    void buildIndex() throws Exception {
+        mockMvc.perform(post("/library/admin/search-index/rebuild"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.books").value(2));
+    }
+
+    @Test
+    public void testSearchFollowsCommittedChanges() throws Exception {
+        assertTrue(searchIndex.isReady());
+        assertEquals(2, booksService.search("test title", 0).size());
+
+        mockMvc.perform(post("/library/books")
+                        .flashAttr("bookDTO", new BookDTO("Indexed Book", "Test Author", "1700")))
+                .andExpect(status().is3xxRedirection());
+
+        List<Book> foundBooks = booksService.search("indexed", 0);
+        assertEquals(1, foundBooks.size());
+        assertEquals("Indexed Book", foundBooks.getFirst().getTitle());
+
+        mockMvc.perform(delete("/library/books/{id}", foundBooks.getFirst().getId()))
+                .andExpect(status().is3xxRedirection());
+
+        assertTrue(booksService.search("indexed", 0).isEmpty());
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        mockMvc.perform(get("/library/admin/search-index"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.enabled").value(true),
+                        jsonPath("$.books").value(2),
+                        jsonPath("$.totalBytes").value(greaterThan(0)));
+    }
+}
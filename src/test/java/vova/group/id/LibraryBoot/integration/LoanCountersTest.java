@@ -0,0 +1,214 @@
+package vova.group.id.LibraryBoot.integration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.dto.AuthorLoans;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.LibraryStatistics;
+import vova.group.id.LibraryBoot.dto.ReaderLoans;
+import vova.group.id.LibraryBoot.importing.ImportFormat;
+import vova.group.id.LibraryBoot.importing.ImportService;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.services.StatisticsService;
+import vova.group.id.LibraryBoot.statistics.LoanCounters;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The counters behind the main page follow every change of the services, and agree with a count from Book.
+ * The seeded library: two books, book 2 (Taras Shevchenko) taken long ago by reader 1.
+ */
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class LoanCountersTest extends H2databaseInitTest {
+
+    @Autowired
+    private LoanCounters loanCounters;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private PeopleService peopleService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @BeforeEach
+    public void countSeededRows() {
+        // the rows were inserted with plain SQL
+        loanCounters.reconcile();
+    }
+
+    @Test
+    public void testDashboard() {
+        LibraryStatistics statistics = statisticsService.dashboard();
+
+        assertEquals(2, statistics.getBooks());
+        assertEquals(1, statistics.getBooksOnLoan());
+        assertEquals(1, statistics.getOverdueBooks());
+        assertEquals(1, statistics.getTopReaders().size());
+        assertEquals("Test Name1", statistics.getTopReaders().getFirst().getFullName());
+        assertEquals(1, statistics.getTopReaders().getFirst().getLoans());
+        assertEquals("Taras Shevchenko", statistics.getTopAuthors().getFirst().getAuthor());
+    }
+
+    @Test
+    public void testMainPage() throws Exception {
+        MockMvcBuilders.webAppContextSetup(webApplicationContext).build()
+                .perform(get("/library"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString("Test Name1")),
+                        content().string(containsString("Taras Shevchenko: 1")));
+    }
+
+    @Test
+    public void testCheckoutAndReturn() {
+        Book kobzar = new Book("Kobzar", "Taras Shevchenko", 1840);
+        booksService.save(kobzar);
+        assertTrue(booksService.appointPerson(peopleService.show(1), 1));
+        assertTrue(booksService.appointPerson(peopleService.show(2), kobzar.getId()));
+        assertCountedAsInBook(3, 3, 1);
+
+        List<ReaderLoans> readers = statisticsService.dashboard().getTopReaders();
+        assertEquals(1, readers.getFirst().getReaderId());
+        assertEquals(2, readers.getFirst().getLoans());
+        List<AuthorLoans> authors = statisticsService.dashboard().getTopAuthors();
+        assertEquals("Taras Shevchenko", authors.getFirst().getAuthor());
+        assertEquals(2, authors.getFirst().getLoans());
+
+        booksService.free(2);
+        // returning it twice counts it off once
+        booksService.free(2);
+        assertCountedAsInBook(3, 2, 0);
+    }
+
+    @Test
+    public void testBulkCheckoutAndReturn() {
+        booksService.appointPeople(List.of(new BookLoanRequest(1, 3), new BookLoanRequest(2, 3)));
+        booksService.freeBooks(List.of(2, 404));
+        assertCountedAsInBook(2, 1, 0);
+        assertEquals(3, statisticsService.dashboard().getTopReaders().getFirst().getReaderId());
+    }
+
+    @Test
+    public void testEditAndDelete() {
+        Book book = booksService.show(2);
+        booksService.update(2, new Book(book.getTitle(), "Lesya Ukrainka", book.getYear()));
+        assertEquals("Lesya Ukrainka", statisticsService.dashboard().getTopAuthors().getFirst().getAuthor());
+
+        booksService.delete(2);
+        assertCountedAsInBook(1, 0, 0);
+        assertTrue(statisticsService.dashboard().getTopAuthors().isEmpty());
+    }
+
+    @Test
+    public void testDeleteReader() {
+        peopleService.delete(1);
+        assertCountedAsInBook(2, 0, 0);
+        assertTrue(statisticsService.dashboard().getTopReaders().isEmpty());
+    }
+
+    @Test
+    public void testImport() {
+        String csv = "title,author,year\nKobzar,Taras Shevchenko,1840\nZakhar Berkut,Ivan Franko,1883\n";
+        importService.importBooks(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+        assertCountedAsInBook(4, 1, 1);
+    }
+
+    @Test
+    public void testRollbackChangesNothing() {
+        transactionTemplate.executeWithoutResult(status -> {
+            booksService.appointPerson(peopleService.show(2), 1);
+            status.setRollbackOnly();
+        });
+        assertCountedAsInBook(2, 1, 1);
+    }
+
+    @Test
+    public void testConcurrentLoans() throws Exception {
+        List<Integer> bookIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Book book = new Book("Book " + i, "Author " + i % 3, 1900 + i);
+            booksService.save(book);
+            bookIds.add(book.getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int reader = i % 3 + 1;
+                int bookId = bookIds.get(i);
+                workers.add(executor.submit(() -> {
+                    for (int j = 0; j < 20; j++) {
+                        booksService.appointPerson(peopleService.show(reader), bookId);
+                        if (j % 2 == 0)
+                            booksService.free(bookId);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers)
+                worker.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertCountedAsInBook(10, 9, 1);
+    }
+
+    // the counters as kept by the services, then as counted from Book
+    private void assertCountedAsInBook(long books, long onLoan, long overdue) {
+        LibraryStatistics kept = statisticsService.dashboard();
+        assertEquals(books, kept.getBooks());
+        assertEquals(onLoan, kept.getBooksOnLoan());
+        assertEquals(overdue, kept.getOverdueBooks());
+
+        loanCounters.reconcile();
+        LibraryStatistics counted = statisticsService.dashboard();
+        assertEquals(books, counted.getBooks());
+        assertEquals(onLoan, counted.getBooksOnLoan());
+        assertEquals(overdue, counted.getOverdueBooks());
+        assertEquals(readers(counted), readers(kept));
+        assertEquals(authors(counted), authors(kept));
+    }
+
+    private static List<String> readers(LibraryStatistics statistics) {
+        return statistics.getTopReaders().stream().map(reader -> reader.getReaderId() + "=" + reader.getLoans()).toList();
+    }
+
+    private static List<String> authors(LibraryStatistics statistics) {
+        return statistics.getTopAuthors().stream().map(author -> author.getAuthor() + "=" + author.getLoans()).toList();
+    }
+}
@@ -0,0 +1,164 @@
+package vova.group.id.LibraryBoot.integration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.LoanEvent;
+import vova.group.id.LibraryBoot.dto.LoanHistory;
+import vova.group.id.LibraryBoot.history.LoanLedger;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static vova.group.id.LibraryBoot.dto.LoanEvent.Kind.CHECKOUT;
+import static vova.group.id.LibraryBoot.dto.LoanEvent.Kind.RETURN;
+
+/**
+ * Every checkout and return is appended to loan_event in its transaction, and read back newest first.
+ */
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class LoanHistoryTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private PeopleService peopleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public LoanHistoryTest(WebApplicationContext webApplicationContext) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @BeforeEach
+    public void clearLedger() {
+        jdbcTemplate.execute("DELETE FROM loan_event");
+    }
+
+    @Test
+    public void testCheckoutAndReturn() {
+        assertTrue(booksService.appointPerson(peopleService.show(2), 1));
+        booksService.free(1);
+        // already free, nothing to record
+        booksService.free(1);
+
+        List<LoanEvent> events = booksService.history(1, null).getEvents();
+        assertEquals(List.of(RETURN, CHECKOUT), events.stream().map(LoanEvent::getKind).toList());
+        assertEquals("Test Title1", events.getFirst().getTitle());
+        assertEquals("Test Name2", events.getFirst().getReaderName());
+        assertEquals(events.getLast().getOccurredAt(), events.getFirst().getTakenAt());
+        assertEquals(ids(booksService.history(1, null)), ids(peopleService.history(2, null)));
+    }
+
+    @Test
+    public void testBulkCheckoutAndReturn() {
+        booksService.appointPeople(List.of(new BookLoanRequest(1, 3), new BookLoanRequest(2, 3)));
+        booksService.freeBooks(List.of(1, 2));
+
+        assertEquals(List.of(RETURN, CHECKOUT), kinds(peopleService.history(3, null)));
+        // the loan of book 2 began before the ledger
+        LoanEvent returned = peopleService.history(1, null).getEvents().getFirst();
+        assertEquals(RETURN, returned.getKind());
+        assertEquals(2, returned.getBookId());
+        assertEquals(Timestamp.valueOf("2025-01-01 10:00:00"), returned.getTakenAt());
+    }
+
+    @Test
+    public void testRollbackRecordsNothing() {
+        transactionTemplate.executeWithoutResult(status -> {
+            booksService.appointPerson(peopleService.show(2), 1);
+            status.setRollbackOnly();
+        });
+        assertTrue(booksService.history(1, null).getEvents().isEmpty());
+    }
+
+    @Test
+    public void testHistoryOutlivesReaderAndBook() {
+        peopleService.delete(1);
+        LoanEvent returned = booksService.history(2, null).getEvents().getFirst();
+        assertEquals(RETURN, returned.getKind());
+        assertEquals(1, returned.getReaderId());
+        assertNull(returned.getReaderName());
+
+        booksService.appointPerson(peopleService.show(2), 2);
+        booksService.delete(2);
+        assertEquals(List.of(RETURN, CHECKOUT, RETURN), kinds(booksService.history(2, null)));
+        assertNull(booksService.history(2, null).getEvents().getFirst().getTitle());
+    }
+
+    @Test
+    public void testPages() {
+        for (int i = 0; i < 60; i++) {
+            booksService.appointPerson(peopleService.show(2), 1);
+            booksService.free(1);
+        }
+
+        List<LoanEvent> events = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            LoanHistory page = booksService.history(1, cursor);
+            events.addAll(page.getEvents());
+            pageSizes.add(page.getEvents().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(LoanLedger.HISTORY_PAGE_SIZE, LoanLedger.HISTORY_PAGE_SIZE, 20), pageSizes);
+        assertEquals(120, new HashSet<>(events.stream().map(LoanEvent::getId).toList()).size());
+        for (int i = 1; i < events.size(); i++)
+            assertTrue(events.get(i - 1).getId() > events.get(i).getId(), "newest first");
+    }
+
+    @Test
+    public void testApi() throws Exception {
+        booksService.appointPerson(peopleService.show(3), 1);
+
+        mockMvc.perform(get("/api/v1/books/{id}/history", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.events[0].kind").value("CHECKOUT"),
+                        jsonPath("$.events[0].readerName").value("Test Name3"),
+                        jsonPath("$.nextCursor").doesNotExist());
+        mockMvc.perform(get("/api/v1/people/{id}/history", 3))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.events[0].title").value("Test Title1"));
+        mockMvc.perform(get("/api/v1/people/{id}/history", 3).param("cursor", "not a cursor"))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("$[0].field").value("cursor"));
+    }
+
+    private static List<Long> ids(LoanHistory history) {
+        return history.getEvents().stream().map(LoanEvent::getId).toList();
+    }
+
+    private static List<LoanEvent.Kind> kinds(LoanHistory history) {
+        return history.getEvents().stream().map(LoanEvent::getKind).toList();
+    }
+}
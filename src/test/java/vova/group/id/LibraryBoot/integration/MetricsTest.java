@@ -0,0 +1,84 @@
+package vova.group.id.LibraryBoot.integration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.metrics.SqlCountInterceptor;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureObservability(tracing = false)
+@TestPropertySource("classpath:application-test.properties")
+public class MetricsTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    public MetricsTest(WebApplicationContext webApplicationContext) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    public void testServiceMethodsAreTimed() {
+        Timer show = meterRegistry.timer(BooksService.METRIC_NAME,
+                "class", BooksService.class.getName(), "method", "show", "exception", "none");
+        long before = show.count();
+
+        booksService.show(1);
+        booksService.show(2);
+        assertEquals(before + 2, show.count());
+
+        Person reader = new Person();
+        reader.setId(3);
+        assertThrows(IllegalArgumentException.class, () -> booksService.appointPerson(reader, 404));
+        assertEquals(1, meterRegistry.get(BooksService.METRIC_NAME)
+                .tags("method", "appointPerson", "exception", "IllegalArgumentException").timer().count());
+    }
+
+    @Test
+    public void testSqlStatementsPerEndpoint() throws Exception {
+        mockMvc.perform(get("/library/books/2")).andExpect(status().isOk());
+        mockMvc.perform(get("/library/books/1")).andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get(SqlCountInterceptor.METRIC_NAME)
+                .tags("method", "GET", "uri", "/library/books/{id}").summary();
+        assertEquals(2, statements.count());
+        // the book with its reader in one select each
+        assertEquals(2, statements.totalAmount());
+    }
+
+    @Test
+    public void testPrometheusEndpoint() throws Exception {
+        mockMvc.perform(get("/library/people/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string(containsString("library_service_seconds_count{")),
+                        content().string(containsString("library_http_sql_statements_bucket{")),
+                        content().string(containsString("hibernate_query_executions_total{")),
+                        content().string(containsString("hibernate_second_level_cache_requests_total{")),
+                        content().string(containsString("hikaricp_connections_active{")));
+    }
+}
@@ -0,0 +1,173 @@
+package vova.group.id.LibraryBoot.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vova.group.id.LibraryBoot.dto.OverdueNotice;
+import vova.group.id.LibraryBoot.notifications.FileNotifier;
+import vova.group.id.LibraryBoot.notifications.OverdueNotifier;
+import vova.group.id.LibraryBoot.notifications.OverdueReminders;
+import vova.group.id.LibraryBoot.repositories.BooksRepository;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * The overdue reminders go out once per loan, in chunks, and a run goes on where the last one stopped.
+ * The seeded library has one overdue loan, book 2 of reader 1; the tests add more with plain SQL.
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = {"library.notifications.chunk-size=100", "library.notifications.concurrency=8"})
+public class OverdueRemindersTest extends H2databaseInitTest {
+
+    @Autowired
+    private OverdueReminders overdueReminders;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper jsonMapper;
+
+    @MockitoBean
+    private OverdueNotifier notifier;
+
+    @BeforeEach
+    public void clearMark() {
+        jdbcTemplate.update("UPDATE job_mark SET taken_at = NULL, book_id = NULL, claimed_until = NULL WHERE job = ?",
+                OverdueReminders.JOB);
+        jdbcTemplate.update("DELETE FROM overdue_reminder_sent");
+    }
+
+    @Test
+    public void testEachLoanOnce() throws IOException {
+        // 250 loans of reader 2 a year ago, several to a moment
+        jdbcTemplate.update("INSERT INTO Book (title, author, book_year, person_id, taken_at) " +
+                "SELECT 'Title ' || X, 'Author', 1900, 2, DATEADD(SECOND, X / 3, TIMESTAMP '2025-02-01 10:00:00') " +
+                "FROM SYSTEM_RANGE(1, 250)");
+
+        assertEquals(251, overdueReminders.run());
+        ArgumentCaptor<OverdueNotice> notices = ArgumentCaptor.forClass(OverdueNotice.class);
+        verify(notifier, times(251)).send(notices.capture());
+        assertEquals(251, new HashSet<>(notices.getAllValues().stream().map(OverdueNotice::getBookId).toList()).size());
+        OverdueNotice seeded = notices.getAllValues().stream().filter(notice -> notice.getBookId() == 2)
+                .findFirst().orElseThrow();
+        assertEquals("test1@gmail.com", seeded.getEmail());
+        assertEquals("Test Title2", seeded.getTitle());
+
+        assertEquals(0, overdueReminders.run());
+        verifyNoMoreInteractions(notifier);
+    }
+
+    @Test
+    public void testOnlyNewlyOverdue() throws IOException {
+        overdueReminders.run();
+        verify(notifier).send(argThat(notice -> notice.getBookId() == 2));
+
+        // book 1 has been out for 11 days, and was taken down to the microsecond
+        jdbcTemplate.update("UPDATE Book SET person_id = 3, taken_at = DATEADD(DAY, -11, LOCALTIMESTAMP(6)) " +
+                "WHERE id = 1");
+        assertEquals(1, overdueReminders.run());
+        verify(notifier).send(argThat(notice -> notice.getBookId() == 1 && notice.getReaderId() == 3));
+        assertEquals(0, overdueReminders.run());
+        verifyNoMoreInteractions(notifier);
+    }
+
+    @Test
+    public void testNotYetOverdue() throws IOException {
+        jdbcTemplate.update("UPDATE Book SET person_id = 3, taken_at = DATEADD(DAY, -9, LOCALTIMESTAMP) WHERE id = 1");
+        assertEquals(1, overdueReminders.run());
+        verify(notifier, never()).send(argThat(notice -> notice.getBookId() == 1));
+    }
+
+    @Test
+    public void testReturnedBeforeTheRun() throws IOException {
+        jdbcTemplate.update("UPDATE Book SET person_id = NULL, taken_at = NULL WHERE id = 2");
+        assertEquals(0, overdueReminders.run());
+        verify(notifier, never()).send(any());
+    }
+
+    @Test
+    public void testOnlyTheFailedReminderIsSentAgain() throws IOException {
+        jdbcTemplate.update("INSERT INTO Book (id, title, author, book_year, person_id, taken_at) " +
+                "VALUES (10, 'Kobzar', 'Taras Shevchenko', 1840, 2, '2025-03-01 10:00:00'), " +
+                "(11, 'Zakhar Berkut', 'Ivan Franko', 1883, 3, '2025-04-01 10:00:00')");
+        doThrow(new IOException("mail server down")).when(notifier).send(argThat(notice -> notice.getBookId() == 10));
+
+        // book 2 is before the failure in the chunk, book 11 after it
+        assertEquals(2, overdueReminders.run());
+        verify(notifier).send(argThat(notice -> notice.getBookId() == 2));
+        verify(notifier).send(argThat(notice -> notice.getBookId() == 11));
+        Timestamp mark = jdbcTemplate.queryForObject("SELECT taken_at FROM job_mark WHERE job = ?", Timestamp.class,
+                OverdueReminders.JOB);
+        assertEquals(Timestamp.valueOf("2025-01-01 10:00:00"), mark);
+
+        reset(notifier);
+        assertEquals(1, overdueReminders.run());
+        verify(notifier).send(argThat(notice -> notice.getBookId() == 10));
+        verifyNoMoreInteractions(notifier);
+
+        // past all three, nothing is kept for the next runs
+        assertEquals(11, jdbcTemplate.queryForObject("SELECT book_id FROM job_mark WHERE job = ?", Integer.class,
+                OverdueReminders.JOB));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM overdue_reminder_sent", Integer.class));
+        assertEquals(0, overdueReminders.run());
+        verifyNoMoreInteractions(notifier);
+    }
+
+    @Test
+    public void testClaimedByAnotherInstance() throws IOException {
+        jdbcTemplate.update("UPDATE job_mark SET claimed_until = DATEADD(MINUTE, 1, LOCALTIMESTAMP) WHERE job = ?",
+                OverdueReminders.JOB);
+        assertEquals(0, overdueReminders.run());
+        verify(notifier, never()).send(any());
+
+        // a claim that ran out, its instance has stopped
+        jdbcTemplate.update("UPDATE job_mark SET claimed_until = DATEADD(MINUTE, -1, LOCALTIMESTAMP) WHERE job = ?",
+                OverdueReminders.JOB);
+        assertEquals(1, overdueReminders.run());
+        verify(notifier).send(argThat(notice -> notice.getBookId() == 2));
+    }
+
+    @Test
+    public void testFileSink(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("reminders.ndjson");
+        FileNotifier fileNotifier = new FileNotifier(file, jsonMapper);
+        for (OverdueNotice notice : booksRepository.findOverdueLoansAfter(new Date(0), 0, new Date(),
+                PageRequest.ofSize(10))) {
+            fileNotifier.send(notice);
+            fileNotifier.send(notice);
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        JsonNode line = jsonMapper.readTree(lines.getFirst());
+        assertEquals(2, line.get("bookId").asInt());
+        assertEquals("test1@gmail.com", line.get("email").asText());
+        assertEquals(Timestamp.valueOf("2025-01-01 10:00:00").getTime(), line.get("takenAt").asLong());
+    }
+}
@@ -0,0 +1,127 @@
+package vova.group.id.LibraryBoot.integration;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.repositories.BooksRepository;
+import vova.group.id.LibraryBoot.repositories.PeopleRepository;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+import vova.group.id.LibraryBoot.utils.RecordingStatementInspector;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Every repository query runs EXPLAIN on the SQL Hibernate generated for it, and none of them may scan a whole table.
+ * The book search is left out: on PostgreSQL it is served by the trigram indexes, H2 has nothing similar.
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties", properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=vova.group.id.LibraryBoot.utils.RecordingStatementInspector")
+public class QueryPlanTest extends H2databaseInitTest {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private PeopleRepository peopleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LibraryCache libraryCache;
+
+    @TestFactory
+    public Stream<DynamicTest> testRepositoryQueriesUseIndexes() {
+        // enough rows that a scan would cost more than an index lookup
+        jdbcTemplate.update("INSERT INTO Person (full_name, birth_year, email) " +
+                "SELECT 'Reader ' || X, 1990, 'reader' || X || '@gmail.com' FROM SYSTEM_RANGE(1, 1000)");
+        jdbcTemplate.update("INSERT INTO Book (title, author, book_year, person_id, taken_at) " +
+                "SELECT 'Title ' || X, 'Author ' || MOD(X, 100), 1500 + MOD(X, 500), " +
+                "CASE WHEN MOD(X, 3) = 0 THEN 1 END, CASE WHEN MOD(X, 3) = 0 THEN CURRENT_TIMESTAMP END " +
+                "FROM SYSTEM_RANGE(1, 5000)");
+        jdbcTemplate.execute("ANALYZE");
+
+        Date now = new Date();
+        PageRequest tenRows = PageRequest.ofSize(10);
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("Book findById", () -> booksRepository.findById(1));
+        queries.put("Book findWithReaderById", () -> booksRepository.findWithReaderById(2));
+        queries.put("Book findWithReaderByIdIn", () -> booksRepository.findWithReaderByIdIn(List.of(1, 2)));
+        queries.put("Book findAllById", () -> booksRepository.findAllById(List.of(1, 2)));
+        queries.put("Book existsById", () -> booksRepository.existsById(1));
+        queries.put("Book findLoansByReaderId", () -> booksRepository.findLoansByReaderId(2, now));
+        queries.put("Book findOverdueLoans", () -> booksRepository.findOverdueLoans(now, tenRows));
+        queries.put("Book findOverdueLoansAfter",
+                () -> booksRepository.findOverdueLoansAfter(new Date(0), 0, now, tenRows));
+        queries.put("Book streamAllWithReader", () -> {
+            try (Stream<?> books = booksRepository.streamAllWithReader()) {
+                books.findFirst();
+            }
+        });
+        queries.put("Book checkOut", () -> booksRepository.checkOut(1, peopleRepository.getReferenceById(2), now));
+        queries.put("Book findAuthorById", () -> booksRepository.findAuthorById(1));
+        queries.put("Book findForUpdateById", () -> booksRepository.findForUpdateById(2));
+        queries.put("Book giveBack", () -> booksRepository.giveBack(2));
+        queries.put("Book findSummariesBy id", () -> booksRepository.findSummariesBy(PageRequest.of(3, 10, Sort.by("id"))));
+        queries.put("Book findSummariesBy year", () -> booksRepository.findSummariesBy(PageRequest.of(3, 10, Sort.by("year", "id"))));
+        queries.put("Book findAllByOrderByIdAsc", () -> booksRepository.findAllByOrderByIdAsc(tenRows));
+        queries.put("Book findByIdGreaterThanOrderByIdAsc", () -> booksRepository.findByIdGreaterThanOrderByIdAsc(100, tenRows));
+        queries.put("Book findByIdLessThanOrderByIdDesc", () -> booksRepository.findByIdLessThanOrderByIdDesc(100, tenRows));
+        queries.put("Book findAllByOrderByYearAscIdAsc", () -> booksRepository.findAllByOrderByYearAscIdAsc(tenRows));
+        queries.put("Book findNextSortedByYear", () -> booksRepository.findNextSortedByYear(1700, 100, tenRows));
+        queries.put("Book findPreviousSortedByYear", () -> booksRepository.findPreviousSortedByYear(1700, 100, tenRows));
+        queries.put("Person findById", () -> peopleRepository.findById(1));
+        queries.put("Person findByEmail", () -> peopleRepository.findByEmail("test1@gmail.com"));
+        queries.put("Person findSummariesByOrderByIdAsc", () -> peopleRepository.findSummariesByOrderByIdAsc());
+        queries.put("Person findByFullNameStartingWith", () ->
+                peopleRepository.findByFullNameStartingWithIgnoreCaseOrderByFullNameAscIdAsc("test", tenRows));
+        queries.put("Person findExistingIds", () -> peopleRepository.findExistingIds(List.of(1, 2)));
+        queries.put("Person findExistingEmails", () -> peopleRepository.findExistingEmails(List.of("test1@gmail.com")));
+
+        return queries.entrySet().stream().map(query ->
+                DynamicTest.dynamicTest(query.getKey(), () -> {
+                    for (String plan : explain(query.getValue()))
+                        assertFalse(plan.contains("tableScan"), query.getKey() + " scans a table:\n" + plan);
+                }));
+    }
+
+    // runs the query in a transaction that is rolled back and explains every statement it sent
+    private List<String> explain(Runnable query) {
+        libraryCache.evictAll();
+        RecordingStatementInspector.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            query.run();
+            status.setRollbackOnly();
+        });
+
+        List<String> statements = RecordingStatementInspector.statements();
+        assertFalse(statements.isEmpty(), "no SQL was sent");
+        return statements.stream().map(sql -> jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+                 ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        })).toList();
+    }
+}
@@ -0,0 +1,120 @@
+package vova.group.id.LibraryBoot.integration;
+
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.datasource.ReadYourWrites;
+import vova.group.id.LibraryBoot.datasource.ReadYourWritesFilter;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * A second H2 database stands in for the replica. It has the same rows as the primary, but for the title
+ * of book 1, so a read shows where it was served from.
+ */
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = "library.datasource.replica.urls=" + ReplicaRoutingTest.REPLICA_URL)
+public class ReplicaRoutingTest extends H2databaseInitTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    private final MockMvc mockMvc;
+    private final JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private PeopleService peopleService;
+
+    @Autowired
+    private LibraryCache libraryCache;
+
+    @Autowired
+    public ReplicaRoutingTest(WebApplicationContext webApplicationContext, JdbcTemplate jdbcTemplate,
+                              FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilter(readYourWritesFilter.getFilter())
+                .build();
+        primary = jdbcTemplate;
+    }
+
+    @BeforeEach
+    public void setUpReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "root", "password123");
+        Flyway.configure().dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .load().migrate();
+        replica = new JdbcTemplate(dataSource);
+        replica.execute(deleteBooks);
+        replica.execute(deletePeople);
+        replica.execute(addPeople);
+        replica.execute(addBooks);
+        replica.update("UPDATE Book SET title = 'Replica Title1' WHERE id = 1");
+    }
+
+    @Test
+    public void testReadOnlyTransactionsUseReplica() {
+        assertEquals("Replica Title1", booksService.show(1).getTitle());
+        assertEquals("Test Title1", primary.queryForObject("SELECT title FROM Book WHERE id = 1", String.class));
+        assertEquals(3, peopleService.index().size());
+    }
+
+    @Test
+    public void testWritesUsePrimary() {
+        booksService.save(new Book("Kobzar", "Taras Shevchenko", 1840));
+        assertTrue(booksService.appointPerson(peopleService.show(3), 1));
+
+        assertEquals(3, primary.queryForObject("SELECT count(*) FROM Book", Integer.class));
+        assertEquals(3, primary.queryForObject("SELECT person_id FROM Book WHERE id = 1", Integer.class));
+        assertEquals(2, replica.queryForObject("SELECT count(*) FROM Book", Integer.class));
+        assertNull(replica.queryForObject("SELECT person_id FROM Book WHERE id = 1", Integer.class));
+    }
+
+    @Test
+    public void testReadYourWrites() {
+        assertEquals("Test Title1", ReadYourWrites.fromPrimary(() -> booksService.show(1)).getTitle());
+        assertFalse(ReadYourWrites.isActive());
+    }
+
+    @Test
+    public void testClientReadsFromPrimaryAfterWrite() throws Exception {
+        mockMvc.perform(get("/api/v1/books/1"))
+                .andExpectAll(
+                        cookie().doesNotExist(ReadYourWritesFilter.COOKIE_NAME),
+                        jsonPath("$.title").value("Replica Title1"));
+        libraryCache.evictAll();
+
+        Cookie sticky = mockMvc.perform(post("/api/v1/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Kobzar\", \"author\": \"Taras Shevchenko\", \"year\": \"1840\"}"))
+                .andExpectAll(
+                        status().isCreated(),
+                        cookie().maxAge(ReadYourWritesFilter.COOKIE_NAME, 5))
+                .andReturn().getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(sticky);
+
+        mockMvc.perform(get("/api/v1/books/1").cookie(sticky))
+                .andExpect(jsonPath("$.title").value("Test Title1"));
+    }
+}
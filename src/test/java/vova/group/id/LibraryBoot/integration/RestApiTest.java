@@ -0,0 +1,317 @@
+package vova.group.id.LibraryBoot.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import vova.group.id.LibraryBoot.history.LoanLedger;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.utils.ConcurrentBookChange;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class RestApiTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+
+    @MockitoSpyBean
+    private BooksService booksService;
+
+    @MockitoSpyBean
+    private LoanLedger loanLedger;
+
+    private final ConcurrentBookChange concurrentChange;
+
+    @Autowired
+    public RestApiTest(WebApplicationContext webApplicationContext,
+                       FilterRegistrationBean<ShallowEtagHeaderFilter> apiEtagFilter, JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilter(apiEtagFilter.getFilter(), "/api/v1/*")
+                .build();
+        concurrentChange = new ConcurrentBookChange(jdbcTemplate, transactionManager, entityManagerFactory);
+    }
+
+    @Test
+    public void testBooksPageWithEtag() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/books").param("booksPerPage", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        header().exists(HttpHeaders.ETAG),
+                        jsonPath("$.books.length()").value(1),
+                        jsonPath("$.books[0].title").value("Test Title1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/books").param("booksPerPage", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isNotModified(),
+                        content().string(""));
+    }
+
+    @Test
+    public void testNotModifiedBeforeTheService() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/v1/books/2"))
+                .andExpectAll(
+                        status().isOk(),
+                        header().exists(HttpHeaders.ETAG),
+                        header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        clearInvocations(booksService);
+        mockMvc.perform(get("/api/v1/books/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isNotModified(),
+                        content().string(""));
+        mockMvc.perform(get("/api/v1/books/2")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isNotModified());
+        verify(booksService, never()).showWithReader(anyInt());
+
+        booksService.free(2);
+        mockMvc.perform(get("/api/v1/books/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.readerId").doesNotExist());
+    }
+
+    @Test
+    public void testBooksPageWithInvalidForm() throws Exception {
+        mockMvc.perform(get("/api/v1/books").param("booksPerPage", "many"))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("$[0].field").value("booksPerPage"));
+    }
+
+    @Test
+    public void testShowBook() throws Exception {
+        mockMvc.perform(get("/api/v1/books/2"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.title").value("Test Title2"),
+                        jsonPath("$.readerId").value(1),
+                        jsonPath("$.readerName").value("Test Name1"));
+
+        mockMvc.perform(get("/api/v1/books/404"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testSearchBooks() throws Exception {
+        mockMvc.perform(get("/api/v1/books/search").param("query", "Shevchenko"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    public void testCreateBook() throws Exception {
+        String location = mockMvc.perform(post("/api/v1/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Kobzar\", \"author\": \"Taras Shevchenko\", \"year\": \"1840\"}"))
+                .andExpectAll(
+                        status().isCreated(),
+                        header().exists(HttpHeaders.LOCATION),
+                        jsonPath("$.title").value("Kobzar"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        assertNotNull(location);
+        mockMvc.perform(get(location))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.author").value("Taras Shevchenko"));
+    }
+
+    @Test
+    public void testCreateInvalidBook() throws Exception {
+        mockMvc.perform(post("/api/v1/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Kobzar\", \"author\": \"Taras Shevchenko\", \"year\": \"18\"}"))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("$[0].field").value("year"));
+    }
+
+    @Test
+    public void testUpdateBookWithStaleVersion() throws Exception {
+        int version = booksService.show(1).getVersion();
+        String body = "{\"title\": \"New Title\", \"author\": \"Ivan Bagryany\", \"year\": \"1946\", \"version\": %d}";
+
+        mockMvc.perform(put("/api/v1/books/1").contentType(MediaType.APPLICATION_JSON).content(body.formatted(version)))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.title").value("New Title"),
+                        jsonPath("$.version").value(version + 1));
+
+        mockMvc.perform(put("/api/v1/books/1").contentType(MediaType.APPLICATION_JSON).content(body.formatted(version)))
+                .andExpectAll(
+                        status().isConflict(),
+                        jsonPath("$[0].field").value("version"));
+
+        mockMvc.perform(put("/api/v1/books/404").contentType(MediaType.APPLICATION_JSON).content(body.formatted(0)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testCheckOutAndReturn() throws Exception {
+        mockMvc.perform(post("/api/v1/books/1/checkout").param("readerId", "3"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.status").value("DONE"));
+        mockMvc.perform(post("/api/v1/books/1/checkout").param("readerId", "2"))
+                .andExpectAll(
+                        status().isConflict(),
+                        jsonPath("$.status").value("ALREADY_TAKEN"));
+        mockMvc.perform(get("/api/v1/people/3"))
+                .andExpect(jsonPath("$.books[0].id").value(1));
+
+        mockMvc.perform(post("/api/v1/books/1/return"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/books/1/return"))
+                .andExpectAll(
+                        status().isConflict(),
+                        jsonPath("$.status").value("ALREADY_FREE"));
+        mockMvc.perform(post("/api/v1/books/404/checkout").param("readerId", "3"))
+                .andExpectAll(
+                        status().isNotFound(),
+                        jsonPath("$.status").value("BOOK_NOT_FOUND"));
+        assertNull(booksService.show(1).getReader());
+    }
+
+    @Test
+    public void testCheckOutAndReturnChangedMeanwhile() throws Exception {
+        // the first attempt loses to a concurrent change, the retry goes through
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, 1)).doCallRealMethod()
+                .when(booksService).appointPeople(anyList());
+        mockMvc.perform(post("/api/v1/books/1/checkout").param("readerId", "3"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.status").value("DONE"));
+        verify(booksService, times(2)).appointPeople(anyList());
+
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, 1)).doCallRealMethod()
+                .when(booksService).freeBooks(List.of(1));
+        mockMvc.perform(post("/api/v1/books/1/return"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.status").value("DONE"));
+
+        // changed again on the retry
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, 1))
+                .when(booksService).appointPeople(anyList());
+        mockMvc.perform(post("/api/v1/books/1/checkout").param("readerId", "3"))
+                .andExpectAll(
+                        status().isConflict(),
+                        jsonPath("$[0].field").value("version"));
+        assertNull(booksService.show(1).getReader());
+    }
+
+    @Test
+    public void testCheckOutAndReturnOfARealChangedBook() throws Exception {
+        // changed by another transaction during the first attempt only, the retry goes through
+        doAnswer(concurrentChange.onFirstCalls(1)).when(loanLedger).checkedOut(anyInt(), anyInt(), any());
+        mockMvc.perform(post("/api/v1/books/1/checkout").param("readerId", "3"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.status").value("DONE"));
+        verify(loanLedger, times(2)).checkedOut(eq(1), eq(3), any());
+
+        // changed during the retry as well
+        doAnswer(concurrentChange.onEveryCall()).when(loanLedger).returned(anyInt(), anyInt(), any(), any());
+        mockMvc.perform(post("/api/v1/books/1/return"))
+                .andExpectAll(
+                        status().isConflict(),
+                        jsonPath("$[0].field").value("version"));
+        assertEquals(3, booksService.show(1).getReader().getId());
+
+        reset(loanLedger);
+        mockMvc.perform(post("/api/v1/books/1/return"))
+                .andExpect(status().isOk());
+        doAnswer(concurrentChange.onEveryCall()).when(loanLedger).checkedOut(anyInt(), anyInt(), any());
+        mockMvc.perform(post("/api/v1/books/1/checkout").param("readerId", "2"))
+                .andExpectAll(
+                        status().isConflict(),
+                        jsonPath("$[0].field").value("version"));
+        assertNull(booksService.show(1).getReader());
+    }
+
+    @Test
+    public void testBulkCheckOut() throws Exception {
+        mockMvc.perform(post("/api/v1/books/checkout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"bookId\": 1, \"readerId\": 2}, {\"bookId\": 2, \"readerId\": 2}]"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].status").value("DONE"),
+                        jsonPath("$[1].status").value("ALREADY_TAKEN"));
+    }
+
+    @Test
+    public void testPeopleCrud() throws Exception {
+        mockMvc.perform(get("/api/v1/people"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(3));
+
+        String location = mockMvc.perform(post("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullName\": \"Johnny Cash\", \"birthYear\": \"1999\", \"email\": \"cash@ukr.net\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        assertNotNull(location);
+
+        mockMvc.perform(put(location)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullName\": \"Johnny Cash\", \"birthYear\": \"1998\", \"email\": \"cash@ukr.net\"}"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.birthYear").value(1998));
+
+        mockMvc.perform(delete(location))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get(location))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testCreatePersonWithTakenEmail() throws Exception {
+        mockMvc.perform(post("/api/v1/people")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullName\": \"Johnny Cash\", \"birthYear\": \"1999\", \"email\": \"test1@gmail.com\"}"))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("$[0].field").value("email"));
+    }
+
+    @Test
+    public void testSearchPeople() throws Exception {
+        mockMvc.perform(get("/api/v1/people/search").param("prefix", "test name"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(3));
+    }
+}
@@ -0,0 +1,140 @@
+package vova.group.id.LibraryBoot.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class SecondLevelCacheTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+    private Statistics statistics;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private PeopleService peopleService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public SecondLevelCacheTest(WebApplicationContext webApplicationContext) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @BeforeEach
+    void setUpStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testWarmEditPageSkipsDatabase() throws Exception {
+        assertEquals(1, countStatements(1));
+        assertEquals(0, countStatements(1));
+    }
+
+    @Test
+    public void testReaderBooksEvictedOnAppointAndFree() throws Exception {
+        assertIterableEquals(List.of(), readerBookIds(2));
+
+        // the reader select of the book page posts the reader id as "id"
+        mockMvc.perform(patch("/library/books/{id}/appoint", 1).param("id", "2"))
+                .andExpect(status().is3xxRedirection());
+        assertIterableEquals(List.of(1), readerBookIds(2));
+
+        mockMvc.perform(patch("/library/books/{id}/free", 1))
+                .andExpect(status().is3xxRedirection());
+        assertIterableEquals(List.of(), readerBookIds(2));
+    }
+
+    @Test
+    public void testReaderBooksEvictedOnBookDelete() throws Exception {
+        assertIterableEquals(List.of(2), readerBookIds(1));
+
+        mockMvc.perform(delete("/library/books/{id}", 2))
+                .andExpect(status().is3xxRedirection());
+        assertIterableEquals(List.of(), readerBookIds(1));
+    }
+
+    @Test
+    public void testBooksEvictedOnReaderDelete() throws Exception {
+        assertNotNull(booksService.show(2).getReader());
+
+        mockMvc.perform(delete("/library/people/{id}", 1))
+                .andExpect(status().is3xxRedirection());
+        // person_id was cleared by the database, not by Hibernate
+        assertNull(booksService.show(2).getReader());
+    }
+
+    @Test
+    public void testBookUpdateRefreshesCache() throws Exception {
+        assertEquals("Test Title1", booksService.show(1).getTitle());
+
+        mockMvc.perform(patch("/library/books/{id}", 1)
+                        .flashAttr("bookDTO", new BookDTO("Updated Title", "Updated Author", "1900")))
+                .andExpect(status().is3xxRedirection());
+        assertEquals("Updated Title", booksService.show(1).getTitle());
+    }
+
+    @Test
+    public void testPeopleDropdownFollowsNewReaders() {
+        assertEquals(3, peopleService.index().size());
+        assertEquals(3, peopleService.index().size());
+
+        peopleService.save(new Person("Cached Reader", 1990, "cached@gmail.com"));
+        assertEquals(4, peopleService.index().size());
+    }
+
+    @Test
+    public void testCacheReport() throws Exception {
+        booksService.show(1);
+        booksService.show(1);
+
+        mockMvc.perform(get("/library/admin/cache"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].region").value("book"),
+                        jsonPath("$[0].hits").value(greaterThan(0)),
+                        jsonPath("$[0].misses").value(greaterThan(0)),
+                        jsonPath("$[3].region").value("people"));
+    }
+
+    private long countStatements(int bookId) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/library/books/{id}/edit", bookId)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    // goes through the cached Person.books collection
+    private List<Integer> readerBookIds(int personId) {
+        return transactionTemplate.execute(status ->
+                peopleService.show(personId).getBooks().stream().map(Book::getId).sorted().toList());
+    }
+}
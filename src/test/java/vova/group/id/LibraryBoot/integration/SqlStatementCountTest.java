@@ -0,0 +1,174 @@
+package vova.group.id.LibraryBoot.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Every page must run the same number of SQL statements no matter how many books and readers it shows.
+ * The counts are taken with a cold second-level cache.
+ */
+@SpringBootTest
+@TestPropertySource("classpath:application-test.properties")
+public class SqlStatementCountTest extends H2databaseInitTest {
+    private final MockMvc mockMvc;
+    private Statistics statistics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LibraryCache libraryCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    public SqlStatementCountTest(WebApplicationContext webApplicationContext) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @BeforeEach
+    void setUpStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testBooksIndex() throws Exception {
+        assertFixedStatementCount(get("/library/books"), 1);
+    }
+
+    @Test
+    public void testShowBookWithReader() throws Exception {
+        assertFixedStatementCount(get("/library/books/{id}", 2), 1);
+    }
+
+    @Test
+    public void testShowBookWithoutReader() throws Exception {
+        assertFixedStatementCount(get("/library/books/{id}", 1), 1);
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        assertFixedStatementCount(post("/library/books/search").param("titleFragment", "Title"), 2);
+    }
+
+    @Test
+    public void testOverdueBooks() throws Exception {
+        assertFixedStatementCount(get("/library/books/overdue"), 1);
+    }
+
+    @Test
+    public void testReaderPicker() throws Exception {
+        assertFixedStatementCount(get("/library/people/picker").param("prefix", "reader"), 1);
+    }
+
+    @Test
+    public void testPeopleIndex() throws Exception {
+        assertFixedStatementCount(get("/library/people"), 1);
+    }
+
+    @Test
+    public void testShowPersonWithBooks() throws Exception {
+        assertFixedStatementCount(get("/library/people/{id}", 1), 2);
+    }
+
+    // one select and one JDBC batch of updates, however many books come back
+    @Test
+    public void testBulkReturn() throws Exception {
+        long oneBook = countStatements(bulkReturn(List.of(2)));
+        addBooksWithReaders(20);
+        List<Integer> takenBooks = jdbcTemplate.queryForList("SELECT id FROM Book WHERE person_id IS NOT NULL", Integer.class);
+        long allBooks = countStatements(bulkReturn(takenBooks));
+
+        assertEquals(40, takenBooks.size());
+        assertEquals(oneBook, allBooks, "statement count must not depend on the number of books");
+        assertTrue(allBooks <= 2, "expected at most 2 statements, was " + allBooks);
+    }
+
+    // ids come from the sequence a block at a time, so new books go out as one JDBC batch
+    @Test
+    public void testSavingManyBooks() {
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 40; i++) {
+                Book book = new Book();
+                book.setTitle("Title " + i);
+                book.setAuthor("Some Author");
+                book.setYear(1950);
+                booksService.save(book);
+            }
+        });
+
+        assertEquals(40, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 3,
+                "expected at most 3 statements, was " + statistics.getPrepareStatementCount());
+        assertEquals(42, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT id) FROM Book", Integer.class));
+    }
+
+    private RequestBuilder bulkReturn(List<Integer> bookIds) {
+        return patch("/library/books/free")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(bookIds.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]")));
+    }
+
+    private void assertFixedStatementCount(RequestBuilder request, long maxStatements) throws Exception {
+        long statementsBefore = countStatements(request);
+        addBooksWithReaders(20);
+        long statementsAfter = countStatements(request);
+
+        assertEquals(statementsBefore, statementsAfter, "statement count must not depend on the data size");
+        assertTrue(statementsAfter <= maxStatements, "expected at most " + maxStatements + " statements, was " + statementsAfter);
+    }
+
+    private long countStatements(RequestBuilder request) throws Exception {
+        libraryCache.evictAll();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    // every new book gets its own reader, and reader 1 gets one more book each time
+    private void addBooksWithReaders(int count) {
+        for (int i = 0; i < count; i++) {
+            String email = "reader" + i + "@gmail.com";
+            jdbcTemplate.update("INSERT INTO Person (full_name, birth_year, email) VALUES (?, 1990, ?)", "Reader Name", email);
+            jdbcTemplate.update("INSERT INTO Book (person_id, title, author, book_year, taken_at) " +
+                    "VALUES ((SELECT id FROM Person WHERE email = ?), ?, 'Some Author', 1950, CURRENT_TIMESTAMP)", email, "Title " + i);
+            jdbcTemplate.update("INSERT INTO Book (person_id, title, author, book_year, taken_at) " +
+                    "VALUES (1, ?, 'Some Author', 1960, CURRENT_TIMESTAMP)", "Title of reader 1 " + i);
+        }
+    }
+}
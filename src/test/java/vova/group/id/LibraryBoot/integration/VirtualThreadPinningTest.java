@@ -0,0 +1,94 @@
+package vova.group.id.LibraryBoot.integration;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.BookPageForm;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.services.BooksService;
+import vova.group.id.LibraryBoot.services.PeopleService;
+import vova.group.id.LibraryBoot.utils.H2databaseInitTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The services called from many virtual threads at once, with far fewer connections than threads so most of them
+ * park waiting for the pool. A thread that parks inside a synchronized block pins its carrier, and JFR reports it.
+ */
+@SpringBootTest
+@ActiveProfiles("virtual")
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = {"spring.datasource.hikari.maximum-pool-size=2", "spring.datasource.hikari.minimum-idle=2",
+                "spring.datasource.hikari.connection-timeout=30000"})
+public class VirtualThreadPinningTest extends H2databaseInitTest {
+    private static final int TASKS = 400;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private PeopleService peopleService;
+
+    @Test
+    public void testServicesDoNotPinCarrierThreads() throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withoutThreshold().withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            try {
+                List<Future<?>> calls = new ArrayList<>();
+                for (int i = 0; i < TASKS; i++)
+                    calls.add(executor.submit(call(i)));
+                executor.shutdown();
+                // with a single carrier a pinned thread waiting for a connection blocks the one holding it
+                assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES), "the calls did not finish, a carrier is pinned");
+                for (Future<?> done : calls)
+                    done.get();
+            } finally {
+                executor.shutdownNow();
+            }
+            recording.stop();
+        }
+
+        assertTrue(pinned.isEmpty(), () -> pinned.size() + " pinned parks, the first at:\n" + pinned.getFirst().getStackTrace());
+        assertEquals(TASKS / 6, peopleService.showPersonBooks(3).size());
+    }
+
+    // reads behind every page, and a new book given to reader 3 in every sixth call
+    private Runnable call(int i) {
+        Person reader = new Person();
+        reader.setId(3);
+        return switch (i % 6) {
+            case 0 -> () -> booksService.index(new BookPageForm(null, "10", i % 12 == 0));
+            case 1 -> () -> booksService.showWithReader(2);
+            case 2 -> () -> booksService.overdueLoans(0);
+            case 3 -> () -> peopleService.index();
+            case 4 -> () -> peopleService.showPersonBooks(1);
+            default -> () -> {
+                Book book = new Book();
+                book.setTitle("Title " + i);
+                book.setAuthor("Some Author");
+                book.setYear(1950);
+                booksService.save(book);
+                booksService.appointPerson(reader, book.getId());
+            };
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package vova.group.id.LibraryBoot.mappers;
+
+import org.junit.jupiter.api.Test;
+import vova.group.id.LibraryBoot.dto.BookDTO;
+import vova.group.id.LibraryBoot.dto.BookDetails;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.util.BookMapper;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookMapperTest {
+    private final BookMapper mapper = new BookMapper();
+
+    @Test
+    public void testToBook() {
+        // given
+        BookDTO bookDTO = new BookDTO("Tiger hunters", "Ivan Bagryany", "1946");
+        bookDTO.setId(7);
+        bookDTO.setVersion(2);
+        // when
+        Book book = mapper.toBook(bookDTO);
+        // then
+        assertEquals(7, book.getId());
+        assertEquals("Tiger hunters", book.getTitle());
+        assertEquals("Ivan Bagryany", book.getAuthor());
+        assertEquals(1946, book.getYear());
+        assertEquals(2, book.getVersion());
+        // the loan is not part of the form
+        assertNull(book.getReader());
+        assertNull(book.getTakenAt());
+    }
+
+    @Test
+    public void testToBookDTO() {
+        // given
+        Book book = new Book("Kobzar", "Taras Shevchenko", 1840);
+        book.setId(3);
+        book.setVersion(5);
+        book.setReader(new Person());
+        book.setTakenAt(new Date());
+        // when
+        BookDTO bookDTO = mapper.toBookDTO(book);
+        // then
+        assertEquals(3, bookDTO.getId());
+        assertEquals("Kobzar", bookDTO.getTitle());
+        assertEquals("Taras Shevchenko", bookDTO.getAuthor());
+        assertEquals("1840", bookDTO.getYear());
+        assertEquals(5, bookDTO.getVersion());
+    }
+
+    @Test
+    public void testToBookDetails() {
+        // given
+        Person reader = new Person("Johnny Cash", 1999, "test@ukr.net");
+        reader.setId(4);
+        Date takenAt = new Date();
+        Book book = new Book("Kobzar", "Taras Shevchenko", 1840);
+        book.setId(3);
+        book.setVersion(5);
+        book.setReader(reader);
+        book.setTakenAt(takenAt);
+        // when
+        BookDetails details = mapper.toBookDetails(book);
+        // then
+        assertEquals(3, details.getId());
+        assertEquals("Kobzar", details.getTitle());
+        assertEquals(1840, details.getYear());
+        assertEquals(5, details.getVersion());
+        assertEquals(4, details.getReaderId());
+        assertEquals("Johnny Cash", details.getReaderName());
+        assertEquals(takenAt, details.getTakenAt());
+    }
+
+    @Test
+    public void testToBookDetailsOfFreeBook() {
+        // when
+        BookDetails details = mapper.toBookDetails(new Book("Kobzar", "Taras Shevchenko", 1840));
+        // then
+        assertNull(details.getReaderId());
+        assertNull(details.getReaderName());
+        assertNull(details.getTakenAt());
+    }
+}
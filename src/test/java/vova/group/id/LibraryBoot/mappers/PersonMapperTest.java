@@ -0,0 +1,58 @@
+package vova.group.id.LibraryBoot.mappers;
+
+import org.junit.jupiter.api.Test;
+import vova.group.id.LibraryBoot.dto.PersonDTO;
+import vova.group.id.LibraryBoot.dto.PersonDetails;
+import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.util.PersonMapper;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonMapperTest {
+    private final PersonMapper mapper = new PersonMapper();
+
+    @Test
+    public void testToPerson() {
+        // given
+        PersonDTO personDTO = new PersonDTO(5, "Johnny Cash", "1999", "test@ukr.net");
+        // when
+        Person person = mapper.toPerson(personDTO);
+        // then
+        assertEquals(5, person.getId());
+        assertEquals("Johnny Cash", person.getFullName());
+        assertEquals(1999, person.getBirthYear());
+        assertEquals("test@ukr.net", person.getEmail());
+        assertNull(person.getBooks());
+    }
+
+    @Test
+    public void testToPersonDTO() {
+        // given
+        Person person = new Person("Jane Sivkovich", 2003, "jane@gmail.com");
+        person.setId(2);
+        // when
+        PersonDTO personDTO = mapper.toPersonDTO(person);
+        // then
+        assertEquals(2, personDTO.getId());
+        assertEquals("Jane Sivkovich", personDTO.getFullName());
+        assertEquals("2003", personDTO.getBirthYear());
+        assertEquals("jane@gmail.com", personDTO.getEmail());
+    }
+
+    @Test
+    public void testToPersonDetails() {
+        // given
+        Person person = new Person("Jane Sivkovich", 2003, "jane@gmail.com");
+        person.setId(2);
+        // when
+        PersonDetails details = mapper.toPersonDetails(person, List.of());
+        // then
+        assertEquals(2, details.getId());
+        assertEquals("Jane Sivkovich", details.getFullName());
+        assertEquals(2003, details.getBirthYear());
+        assertEquals("jane@gmail.com", details.getEmail());
+        assertTrue(details.getBooks().isEmpty());
+    }
+}
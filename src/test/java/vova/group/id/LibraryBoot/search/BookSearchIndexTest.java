@@ -0,0 +1,113 @@
+package vova.group.id.LibraryBoot.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.repositories.BooksRepository;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookSearchIndexTest {
+    private BooksRepository booksRepository;
+    private BookSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        booksRepository = mock(BooksRepository.class);
+        when(booksRepository.findAllByOrderByIdAsc(any())).thenReturn(List.of(
+                book(1, "Tiger hunters", "Ivan Bagryany"),
+                book(2, "Kobzar", "Taras Shevchenko"),
+                book(3, "Gethsemane Garden", "Ivan Bagryany")));
+        when(booksRepository.findByIdGreaterThanOrderByIdAsc(anyInt(), any(PageRequest.class))).thenReturn(Collections.emptyList());
+        searchIndex = new BookSearchIndex(booksRepository, true);
+    }
+
+    private BookSummary book(int id, String title, String author) {
+        Book book = new Book(title, author, 1900);
+        book.setId(id);
+        return new SpelAwareProxyProjectionFactory().createProjection(BookSummary.class, book);
+    }
+
+    @Test
+    public void testIndexIsNotReadyBeforeBuild() {
+        assertTrue(searchIndex.isEnabled());
+        assertFalse(searchIndex.isReady());
+    }
+
+    @Test
+    public void testSearchByTitleAndAuthor() {
+        // given
+        searchIndex.rebuild();
+        // when, then
+        assertTrue(searchIndex.isReady());
+        assertEquals(List.of(2), searchIndex.search("KOBZ", 0, 10));
+        assertEquals(List.of(1, 3), searchIndex.search("bagryany", 0, 10));
+        assertEquals(List.of(3), searchIndex.search("bagryany", 1, 10));
+        assertTrue(searchIndex.search("not existing", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testTitleMatchesAreRankedFirst() {
+        // given
+        searchIndex.rebuild();
+        searchIndex.onBookChanged(BookChangedEvent.saved(4, "About Ivan", "Unknown Author"));
+        // when, then
+        assertEquals(List.of(4, 1, 3), searchIndex.search("ivan", 0, 10));
+    }
+
+    @Test
+    public void testShortQueryScansAllBooks() {
+        // given
+        searchIndex.rebuild();
+        // when, then
+        assertEquals(List.of(3, 1), searchIndex.search("an", 0, 10));
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        // given
+        searchIndex.rebuild();
+        // when
+        searchIndex.onBookChanged(BookChangedEvent.saved(2, "Haidamaky", "Taras Shevchenko"));
+        searchIndex.onBookChanged(BookChangedEvent.deleted(1));
+        // then
+        assertTrue(searchIndex.search("kobzar", 0, 10).isEmpty());
+        assertEquals(List.of(2), searchIndex.search("haidamaky", 0, 10));
+        assertEquals(List.of(3), searchIndex.search("bagryany", 0, 10));
+    }
+
+    @Test
+    public void testReport() {
+        // given
+        searchIndex.rebuild();
+        // when
+        SearchIndexReport report = searchIndex.report();
+        // then
+        assertTrue(report.isEnabled());
+        assertEquals(3, report.getBooks());
+        assertTrue(report.getTrigrams() > 0);
+        assertTrue(report.getPostings() >= report.getTrigrams());
+        assertEquals(report.getPostingBytes() + report.getDocumentBytes(), report.getTotalBytes());
+    }
+
+    @Test
+    public void testDisabledIndexIsNotBuilt() {
+        // given
+        BookSearchIndex disabledIndex = new BookSearchIndex(booksRepository, false);
+        // when
+        SearchIndexReport report = disabledIndex.rebuild();
+        // then
+        assertFalse(disabledIndex.isReady());
+        assertEquals(0, report.getBooks());
+    }
+}
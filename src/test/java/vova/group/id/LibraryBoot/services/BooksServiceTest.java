@@ -1,14 +1,25 @@
 package vova.group.id.LibraryBoot.services;
 
 import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.*;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vova.group.id.LibraryBoot.dto.BookLoanRequest;
+import vova.group.id.LibraryBoot.dto.BookLoanResult;
+import vova.group.id.LibraryBoot.dto.BookSummary;
+import vova.group.id.LibraryBoot.history.LoanLedger;
 import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.models.BookCursor;
 import vova.group.id.LibraryBoot.models.BookPageForm;
+import vova.group.id.LibraryBoot.models.BookSlice;
 import vova.group.id.LibraryBoot.models.Person;
 import vova.group.id.LibraryBoot.repositories.BooksRepository;
+import vova.group.id.LibraryBoot.repositories.PeopleRepository;
+import vova.group.id.LibraryBoot.statistics.LoanCounters;
 
 import java.util.Collections;
 import java.util.Date;
@@ -24,18 +35,28 @@ public class BooksServiceTest {
     @MockitoBean
     private BooksRepository booksRepository;
 
+    @MockitoBean
+    private PeopleRepository peopleRepository;
+
+    @MockitoBean
+    private LoanCounters loanCounters;
+
+    @MockitoBean
+    private LoanLedger loanLedger;
+
     @Autowired
     private BooksService booksService;
 
     private Book testBook;
-    private List<Book> testBooks;
+    private List<BookSummary> testBooks;
     private Person testPerson;
     private final static int TEST_ID = 77;
+    private final static ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
 
     @BeforeEach
     public void setUp() {
         testBook = new Book();
-        testBooks = Collections.singletonList(testBook);
+        testBooks = Collections.singletonList(PROJECTIONS.createProjection(BookSummary.class, testBook));
         testPerson = new Person();
     }
 
@@ -43,61 +64,131 @@ public class BooksServiceTest {
     public void testIndexByFormWithEmptyForm() {
         // given
         BookPageForm form = new BookPageForm();
-        when(booksRepository.findAll()).thenReturn(testBooks);
+        when(booksRepository.findAllByOrderByIdAsc(PageRequest.ofSize(21))).thenReturn(testBooks);
         // when
-        List<Book> receivedBooks = booksService.index(form);
+        BookSlice receivedSlice = booksService.index(form);
         // then
-        assertIterableEquals(testBooks, receivedBooks);
-        verify(booksRepository).findAll();
+        assertIterableEquals(testBooks, receivedSlice.getBooks());
+        assertNull(receivedSlice.getNextCursor());
+        assertNull(receivedSlice.getPrevCursor());
+        verify(booksRepository).findAllByOrderByIdAsc(PageRequest.ofSize(21));
     }
 
     @Test
     public void testIndexByFormWithPaginationAndSorting() {
         // given
         BookPageForm form = new BookPageForm("2","3",true);
-        Page<Book> page = new PageImpl<>(testBooks);
-        when(booksRepository.findAll(PageRequest.of(2, 3, Sort.by("year")))).thenReturn(page);
+        when(booksRepository.findSummariesBy(PageRequest.of(2, 3, Sort.by("year", "id")))).thenReturn(testBooks);
         // when
-        List<Book> receivedBooks = booksService.index(form);
+        List<BookSummary> receivedBooks = booksService.index(form).getBooks();
         // then
         assertIterableEquals(testBooks, receivedBooks);
-        verify(booksRepository).findAll(PageRequest.of(2, 3, Sort.by("year")));
+        verify(booksRepository).findSummariesBy(PageRequest.of(2, 3, Sort.by("year", "id")));
     }
 
     @Test
     public void testIndexByFormWithPaginationOnly() {
         // given
         BookPageForm form = new BookPageForm("2","3",false);
-        Page<Book> page = new PageImpl<>(testBooks);
-        when(booksRepository.findAll(PageRequest.of(2, 3))).thenReturn(page);
+        when(booksRepository.findSummariesBy(PageRequest.of(2, 3, Sort.by("id")))).thenReturn(testBooks);
         // when
-        List<Book> receivedBooks = booksService.index(form);
+        List<BookSummary> receivedBooks = booksService.index(form).getBooks();
         // then
         assertIterableEquals(testBooks, receivedBooks);
-        verify(booksRepository).findAll(PageRequest.of(2, 3));
+        verify(booksRepository).findSummariesBy(PageRequest.of(2, 3, Sort.by("id")));
+    }
+
+    @Test
+    public void testIndexByFormWithTooManyBooksPerPage() {
+        // given
+        BookPageForm form = new BookPageForm("0","100000",false);
+        when(booksRepository.findSummariesBy(PageRequest.of(0, 100, Sort.by("id")))).thenReturn(testBooks);
+        // when
+        List<BookSummary> receivedBooks = booksService.index(form).getBooks();
+        // then
+        assertIterableEquals(testBooks, receivedBooks);
+        verify(booksRepository).findSummariesBy(PageRequest.of(0, 100, Sort.by("id")));
     }
 
     @Test
     public void testIndexByFormWithSortingOnly() {
         // given
         BookPageForm form = new BookPageForm(null,null,true);
-        when(booksRepository.findAll(Sort.by("year"))).thenReturn(testBooks);
+        when(booksRepository.findAllByOrderByYearAscIdAsc(PageRequest.ofSize(21))).thenReturn(testBooks);
         // when
-        List<Book> receivedBooks = booksService.index(form);
+        List<BookSummary> receivedBooks = booksService.index(form).getBooks();
         // then
         assertIterableEquals(testBooks, receivedBooks);
-        verify(booksRepository).findAll(Sort.by("year"));
+        verify(booksRepository).findAllByOrderByYearAscIdAsc(PageRequest.ofSize(21));
     }
 
     @Test
-    public void testIndexByTitleFragment() {
+    public void testIndexByFormWithNextCursor() {
         // given
-        when(booksRepository.findByTitleContainingIgnoreCase(anyString())).thenReturn(testBooks);
+        List<BookSummary> threeBooks = List.of(bookWithKey(1950, 5), bookWithKey(1960, 6), bookWithKey(1970, 7));
+        String cursor = new BookCursor(false, 1940, 4).encode();
+        BookPageForm form = new BookPageForm("2", true, cursor);
+        when(booksRepository.findNextSortedByYear(1940, 4, PageRequest.ofSize(3))).thenReturn(threeBooks);
         // when
-        List<Book> receivedBooks = booksService.index(anyString());
+        BookSlice receivedSlice = booksService.index(form);
         // then
-        assertIterableEquals(testBooks, receivedBooks);
-        verify(booksRepository).findByTitleContainingIgnoreCase(anyString());
+        assertIterableEquals(threeBooks.subList(0, 2), receivedSlice.getBooks());
+        BookCursor next = BookCursor.decode(receivedSlice.getNextCursor());
+        assertFalse(next.isBackward());
+        assertEquals(1960, next.getYear());
+        assertEquals(6, next.getId());
+        BookCursor prev = BookCursor.decode(receivedSlice.getPrevCursor());
+        assertTrue(prev.isBackward());
+        assertEquals(5, prev.getId());
+        verify(booksRepository).findNextSortedByYear(1940, 4, PageRequest.ofSize(3));
+    }
+
+    @Test
+    public void testIndexByFormWithPreviousCursor() {
+        // given
+        List<BookSummary> booksInReverse = List.of(bookWithKey(0, 9), bookWithKey(0, 8));
+        String cursor = new BookCursor(true, 0, 10).encode();
+        BookPageForm form = new BookPageForm("2", false, cursor);
+        when(booksRepository.findByIdLessThanOrderByIdDesc(10, PageRequest.ofSize(3))).thenReturn(booksInReverse);
+        // when
+        BookSlice receivedSlice = booksService.index(form);
+        // then
+        assertEquals(8, receivedSlice.getBooks().get(0).getId());
+        assertEquals(9, receivedSlice.getBooks().get(1).getId());
+        assertEquals(9, BookCursor.decode(receivedSlice.getNextCursor()).getId());
+        assertNull(receivedSlice.getPrevCursor());
+        verify(booksRepository).findByIdLessThanOrderByIdDesc(10, PageRequest.ofSize(3));
+    }
+
+    private BookSummary bookWithKey(int year, int id) {
+        Book book = new Book();
+        book.setYear(year);
+        book.setId(id);
+        return PROJECTIONS.createProjection(BookSummary.class, book);
+    }
+
+    @Test
+    public void testSearch() {
+        // given
+        Book secondBook = new Book();
+        secondBook.setId(5);
+        testBook.setId(3);
+        when(booksRepository.searchIds("fragment", PageRequest.of(1, BooksService.SEARCH_RESULTS_PER_PAGE))).thenReturn(List.of(5, 3));
+        when(booksRepository.findWithReaderByIdIn(List.of(5, 3))).thenReturn(List.of(testBook, secondBook));
+        // when
+        List<Book> receivedBooks = booksService.search(" fragment ", 1);
+        // then
+        assertIterableEquals(List.of(secondBook, testBook), receivedBooks);
+        verify(booksRepository).searchIds("fragment", PageRequest.of(1, BooksService.SEARCH_RESULTS_PER_PAGE));
+        verify(booksRepository).findWithReaderByIdIn(List.of(5, 3));
+    }
+
+    @Test
+    public void testSearchWithBlankQuery() {
+        // given, when
+        List<Book> receivedBooks = booksService.search("  ", 0);
+        // then
+        assertTrue(receivedBooks.isEmpty());
     }
 
     @Test
@@ -111,27 +202,37 @@ public class BooksServiceTest {
         verify(booksRepository).findById(anyInt());
     }
 
+    @Test
+    public void testShowMissingBookWithReader() {
+        // given
+        when(booksRepository.findWithReaderById(anyInt())).thenReturn(Optional.empty());
+        // when, then
+        assertNull(booksService.showWithReader(TEST_ID));
+        verify(booksRepository).findWithReaderById(TEST_ID);
+    }
+
     @Test
     public void testShowBookWithEmptyReader() {
         // given
-        when(booksRepository.findById(anyInt())).thenReturn(Optional.of(testBook));
+        when(booksRepository.findWithReaderById(anyInt())).thenReturn(Optional.of(testBook));
         // when
-        Person receivedPerson = booksService.showBookReader(anyInt());
+        Book receivedBook = booksService.showWithReader(TEST_ID);
         // then
-        assertNull(receivedPerson);
-        verify(booksRepository).findById(anyInt());
+        assertEquals(testBook, receivedBook);
+        assertNull(receivedBook.getReader());
+        verify(booksRepository).findWithReaderById(TEST_ID);
     }
 
     @Test
     public void testShowBookWithReaderExist() {
         // given
         testBook.setReader(testPerson);
-        when(booksRepository.findById(anyInt())).thenReturn(Optional.of(testBook));
+        when(booksRepository.findWithReaderById(anyInt())).thenReturn(Optional.of(testBook));
         // when
-        Person receivedPerson = booksService.showBookReader(anyInt());
+        Book receivedBook = booksService.showWithReader(TEST_ID);
         // then
-        assertEquals(testPerson, receivedPerson);
-        verify(booksRepository).findById(anyInt());
+        assertEquals(testPerson, receivedBook.getReader());
+        verify(booksRepository).findWithReaderById(TEST_ID);
     }
 
     @Test
@@ -146,13 +247,16 @@ public class BooksServiceTest {
     public void testUpdate() {
         // given
         Book updatedBook = new Book();
+        Date takenAt = new Date(0);
         testBook.setReader(testPerson);
+        testBook.setTakenAt(takenAt);
         when(booksRepository.findById(TEST_ID)).thenReturn(Optional.of(testBook));
         // when
         booksService.update(TEST_ID, updatedBook);
         // then
         assertEquals(TEST_ID, updatedBook.getId());
         assertEquals(testPerson, updatedBook.getReader());
+        assertEquals(takenAt, updatedBook.getTakenAt());
         verify(booksRepository).findById(TEST_ID);
         verify(booksRepository).save(updatedBook);
     }
@@ -160,21 +264,40 @@ public class BooksServiceTest {
     @Test
     public void testAppointPersonWithBookExist() {
         // given
-        when(booksRepository.findById(TEST_ID)).thenReturn(Optional.of(testBook));
+        testPerson.setId(5);
+        when(booksRepository.checkOut(eq(TEST_ID), eq(testPerson), any(Date.class))).thenReturn(1);
+        when(booksRepository.findAuthorById(TEST_ID)).thenReturn("Ivan Franko");
         // when
-        booksService.appointPerson(testPerson, TEST_ID);
+        boolean appointed = booksService.appointPerson(testPerson, TEST_ID);
         // then
-        assertEquals(testPerson, testBook.getReader());
-        Date now = new Date();
-        long diff = Math.abs(now.getTime() - testBook.getTakenAt().getTime());
+        assertTrue(appointed);
+        verify(booksRepository).findAuthorById(TEST_ID);
+        verify(loanCounters).loanStarted(5, "Ivan Franko");
+        ArgumentCaptor<Date> takenAt = ArgumentCaptor.forClass(Date.class);
+        verify(booksRepository).checkOut(eq(TEST_ID), eq(testPerson), takenAt.capture());
+        long diff = Math.abs(new Date().getTime() - takenAt.getValue().getTime());
         assertTrue(diff < 1000, "takenAt should be set to current time");
-        verify(booksRepository).findById(TEST_ID);
+        verify(loanLedger).checkedOut(TEST_ID, 5, takenAt.getValue());
+    }
+
+    @Test
+    public void testAppointPersonWithTakenBookReturnsConflict() {
+        // given
+        when(booksRepository.checkOut(eq(TEST_ID), eq(testPerson), any(Date.class))).thenReturn(0);
+        when(booksRepository.existsById(TEST_ID)).thenReturn(true);
+        // when
+        boolean appointed = booksService.appointPerson(testPerson, TEST_ID);
+        // then
+        assertFalse(appointed);
+        verify(booksRepository).checkOut(eq(TEST_ID), eq(testPerson), any(Date.class));
+        verify(booksRepository).existsById(TEST_ID);
     }
 
     @Test
     public void testAppointPersonWithEmptyBookThrowException() {
         // given
-        when(booksRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(booksRepository.checkOut(anyInt(), any(Person.class), any(Date.class))).thenReturn(0);
+        when(booksRepository.existsById(anyInt())).thenReturn(false);
         // when
         IllegalArgumentException ex = assertThrows(
                 IllegalArgumentException.class,
@@ -182,29 +305,118 @@ public class BooksServiceTest {
         );
         // then
         assertEquals("Book not found", ex.getMessage());
-        verify(booksRepository).findById(anyInt());
+        verify(booksRepository).checkOut(anyInt(), any(Person.class), any(Date.class));
+        verify(booksRepository).existsById(anyInt());
     }
 
     @Test
     public void testDelete() {
-        // given, when
-        for (int i = 0; i < 5; i++) booksService.delete(i);
+        // given
+        when(booksRepository.findById(TEST_ID)).thenReturn(Optional.of(testBook));
+        // when
+        booksService.delete(TEST_ID);
         // then
-        verify(booksRepository, times(5)).deleteById(anyInt());
+        verify(booksRepository).findById(TEST_ID);
+        verify(booksRepository).delete(testBook);
+    }
+
+    @Test
+    public void testDeleteMissingBook() {
+        // given
+        when(booksRepository.findById(anyInt())).thenReturn(Optional.empty());
+        // when
+        booksService.delete(TEST_ID);
+        // then
+        verify(booksRepository).findById(TEST_ID);
     }
 
     @Test
     public void testFree() {
         // given
+        Date takenAt = new Date(0);
+        testPerson.setId(5);
+        testBook.setAuthor("Ivan Franko");
         testBook.setReader(testPerson);
-        testBook.setTakenAt(new Date());
-        when(booksRepository.findById(TEST_ID)).thenReturn(Optional.of(testBook));
+        testBook.setTakenAt(takenAt);
+        when(booksRepository.findForUpdateById(TEST_ID)).thenReturn(Optional.of(testBook));
+        when(booksRepository.giveBack(TEST_ID)).thenReturn(1);
+        // when
+        booksService.free(TEST_ID);
+        // then
+        verify(booksRepository).findForUpdateById(TEST_ID);
+        verify(booksRepository).giveBack(TEST_ID);
+        verify(loanCounters).loanEnded(5, "Ivan Franko", takenAt);
+        verify(loanLedger).returned(eq(TEST_ID), eq(5), eq(takenAt), any(Date.class));
+    }
+
+    @Test
+    public void testFreeAlreadyFreeBook() {
+        // given
+        when(booksRepository.findForUpdateById(TEST_ID)).thenReturn(Optional.of(testBook));
         // when
         booksService.free(TEST_ID);
         // then
+        verify(booksRepository).findForUpdateById(TEST_ID);
+        verify(booksRepository, never()).giveBack(anyInt());
+        verifyNoInteractions(loanCounters);
+    }
+
+    @Test
+    public void testFreeMissingBookThrowException() {
+        // given
+        when(booksRepository.findForUpdateById(TEST_ID)).thenReturn(Optional.empty());
+        // when
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> booksService.free(TEST_ID)
+        );
+        // then
+        assertEquals("Book not found", ex.getMessage());
+        verify(booksRepository).findForUpdateById(TEST_ID);
+    }
+
+    @Test
+    public void testAppointPeople() {
+        // given
+        Book freeBook = new Book();
+        freeBook.setId(1);
+        Book takenBook = new Book();
+        takenBook.setId(2);
+        takenBook.setReader(new Person());
+        testPerson.setId(5);
+        List<BookLoanRequest> loans = List.of(new BookLoanRequest(1, 5), new BookLoanRequest(2, 5),
+                new BookLoanRequest(3, 5), new BookLoanRequest(1, 6));
+        when(booksRepository.findAllById(List.of(1, 2, 3))).thenReturn(List.of(freeBook, takenBook));
+        when(peopleRepository.findExistingIds(List.of(5, 6))).thenReturn(List.of(5));
+        when(peopleRepository.getReferenceById(5)).thenReturn(testPerson);
+        // when
+        List<BookLoanResult> results = booksService.appointPeople(loans);
+        // then
+        assertEquals(List.of(BookLoanResult.Status.DONE, BookLoanResult.Status.ALREADY_TAKEN,
+                        BookLoanResult.Status.BOOK_NOT_FOUND, BookLoanResult.Status.READER_NOT_FOUND),
+                results.stream().map(BookLoanResult::getStatus).toList());
+        assertEquals(List.of(1, 2, 3, 1), results.stream().map(BookLoanResult::getBookId).toList());
+        assertEquals(testPerson, freeBook.getReader());
+        assertNotNull(freeBook.getTakenAt());
+        verify(booksRepository).findAllById(List.of(1, 2, 3));
+    }
+
+    @Test
+    public void testFreeBooks() {
+        // given
+        testBook.setId(1);
+        testBook.setReader(testPerson);
+        testBook.setTakenAt(new Date());
+        when(booksRepository.findAllById(List.of(1, 2))).thenReturn(List.of(testBook));
+        // when
+        List<BookLoanResult> results = booksService.freeBooks(List.of(1, 1, 2));
+        // then
+        assertEquals(List.of(BookLoanResult.Status.DONE, BookLoanResult.Status.ALREADY_FREE,
+                        BookLoanResult.Status.BOOK_NOT_FOUND),
+                results.stream().map(BookLoanResult::getStatus).toList());
         assertNull(testBook.getReader());
         assertNull(testBook.getTakenAt());
-        verify(booksRepository).findById(TEST_ID);
+        verify(booksRepository).findAllById(List.of(1, 2));
     }
 
     @AfterEach
@@ -3,9 +3,14 @@ package vova.group.id.LibraryBoot.services;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
-import vova.group.id.LibraryBoot.models.Book;
+import vova.group.id.LibraryBoot.dto.LoanSummary;
+import vova.group.id.LibraryBoot.dto.PersonSummary;
 import vova.group.id.LibraryBoot.models.Person;
+import vova.group.id.LibraryBoot.repositories.BooksRepository;
 import vova.group.id.LibraryBoot.repositories.PeopleRepository;
 
 import java.util.*;
@@ -19,25 +24,25 @@ public class PeopleServiceTest {
     @MockitoBean
     private PeopleRepository peopleRepository;
 
+    @MockitoBean
+    private BooksRepository booksRepository;
+
     @Autowired
     private PeopleService peopleService;
 
     private Person testPerson;
-    private Book oldBook;
-    private Book newBook;
-    private List<Person> testPeople;
+    private List<LoanSummary> testLoans;
+    private List<PersonSummary> testPeople;
 
     @BeforeEach
     public void setUp() {
-        oldBook = new Book();
-        oldBook.setTakenAt(daysAgo(11));
-        oldBook.setExpired(false);// older than 10 days
-        newBook = new Book();
-        newBook.setTakenAt(daysAgo(3));
-        newBook.setExpired(false);
+        SpelAwareProxyProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+        // the expired flag is computed by the query, the service only passes the threshold
+        testLoans = List.of(
+                projections.createProjection(LoanSummary.class, Map.of("id", 1, "takenAt", daysAgo(11), "expired", true)),
+                projections.createProjection(LoanSummary.class, Map.of("id", 2, "takenAt", daysAgo(3), "expired", false)));
         testPerson = new Person();
-        testPerson.setBooks(List.of(oldBook, newBook));// within 10 days
-        testPeople = Collections.singletonList(testPerson);
+        testPeople = Collections.singletonList(new SpelAwareProxyProjectionFactory().createProjection(PersonSummary.class, testPerson));
     }
 
     private Date daysAgo(int days) {
@@ -49,12 +54,24 @@ public class PeopleServiceTest {
     @Test
     public void testIndex() {
         // given
-        when(peopleRepository.findAll()).thenReturn(testPeople);
+        when(peopleRepository.findSummariesByOrderByIdAsc()).thenReturn(testPeople);
         // when
-        List<Person> receivedPeople = peopleService.index();
+        List<PersonSummary> receivedPeople = peopleService.index();
         // then
         assertIterableEquals(testPeople, receivedPeople);
-        verify(peopleRepository).findAll();
+        verify(peopleRepository).findSummariesByOrderByIdAsc();
+    }
+
+    @Test
+    public void testPick() {
+        // given
+        when(peopleRepository.findByFullNameStartingWithIgnoreCaseOrderByFullNameAscIdAsc(anyString(), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        // when
+        peopleService.pick(" jo ", -1);
+        // then
+        verify(peopleRepository).findByFullNameStartingWithIgnoreCaseOrderByFullNameAscIdAsc("jo",
+                PageRequest.of(0, PeopleService.READER_PICKER_PAGE_SIZE));
     }
 
     @Test
@@ -82,29 +99,44 @@ public class PeopleServiceTest {
     @Test
     public void testShowPersonBookWithException() {
         // given
-        when(peopleRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(booksRepository.findLoansByReaderId(anyInt(), any(Date.class))).thenReturn(Collections.emptyList());
+        when(peopleRepository.existsById(anyInt())).thenReturn(false);
         // when
         IllegalArgumentException ex = assertThrows(
                 IllegalArgumentException.class,
-                () -> peopleService.showPersonBooks(anyInt())
+                () -> peopleService.showPersonBooks(1)
         );
         // then
         assertEquals("Person not found", ex.getMessage());
-        verify(peopleRepository).findById(anyInt());
+        verify(booksRepository).findLoansByReaderId(eq(1), any(Date.class));
+        verify(peopleRepository).existsById(1);
+    }
+
+    @Test
+    public void testShowPersonWithoutBooks() {
+        // given
+        when(booksRepository.findLoansByReaderId(anyInt(), any(Date.class))).thenReturn(Collections.emptyList());
+        when(peopleRepository.existsById(anyInt())).thenReturn(true);
+        // when
+        List<LoanSummary> receivedBooks = peopleService.showPersonBooks(1);
+        // then
+        assertTrue(receivedBooks.isEmpty());
+        verify(booksRepository).findLoansByReaderId(eq(1), any(Date.class));
+        verify(peopleRepository).existsById(1);
     }
 
     @Test
     public void testShowPersonBookWithCorrectExpireDate() {
         // given
-        testPerson.setBooks(List.of(oldBook, newBook));
-        when(peopleRepository.findById(anyInt())).thenReturn(Optional.of(testPerson));
+        when(booksRepository.findLoansByReaderId(anyInt(), any(Date.class))).thenReturn(testLoans);
         // when
-        List<Book> receivedBooks = peopleService.showPersonBooks(anyInt());
+        List<LoanSummary> receivedBooks = peopleService.showPersonBooks(1);
         // then
         assertEquals(2, receivedBooks.size());
         assertTrue(receivedBooks.get(0).getExpired());
         assertFalse(receivedBooks.get(1).getExpired());
-        verify(peopleRepository).findById(anyInt());
+        verify(booksRepository).findLoansByReaderId(eq(1), argThat(overdueBefore ->
+                Math.abs(overdueBefore.getTime() - daysAgo(10).getTime()) < 60_000));
     }
 
     @Test
@@ -133,6 +165,6 @@ public class PeopleServiceTest {
 
     @AfterEach
     public void tearDown() {
-        verifyNoMoreInteractions(peopleRepository);
+        verifyNoMoreInteractions(peopleRepository, booksRepository);
     }
 }
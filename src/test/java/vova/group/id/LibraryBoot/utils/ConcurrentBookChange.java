@@ -0,0 +1,48 @@
+package vova.group.id.LibraryBoot.utils;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import vova.group.id.LibraryBoot.models.Book;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// another librarian changing a book while the service has it loaded: for a spied method taking the book id first,
+// the version of the book goes up and is committed in a transaction of its own before the real method runs
+public class ConcurrentBookChange {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate otherTransaction;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ConcurrentBookChange(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.otherTransaction = new TransactionTemplate(transactionManager);
+        this.otherTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    // on the first calls only, the later ones go through unchanged
+    public Answer<Object> onFirstCalls(int calls) {
+        AtomicInteger left = new AtomicInteger(calls);
+        return invocation -> {
+            if (left.getAndDecrement() > 0)
+                bumpVersion(invocation.getArgument(0));
+            return invocation.callRealMethod();
+        };
+    }
+
+    public Answer<Object> onEveryCall() {
+        return onFirstCalls(Integer.MAX_VALUE);
+    }
+
+    private void bumpVersion(int bookId) {
+        otherTransaction.executeWithoutResult(status ->
+                jdbcTemplate.update("UPDATE Book SET version = version + 1 WHERE id = ?", bookId));
+        // as a change through Hibernate would
+        entityManagerFactory.getCache().evict(Book.class, bookId);
+    }
+}
@@ -1,19 +1,21 @@
 package vova.group.id.LibraryBoot.utils;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import vova.group.id.LibraryBoot.cache.LibraryCache;
 
 @SpringBootTest
 public class H2databaseInitTest {
-    @Value("${sql.script.create.table.person}")
-    protected String createTablePerson;
+    private static final long FIRST_GENERATED_ID = 100;
 
-    @Value("${sql.script.create.table.book}")
-    protected String createTableBook;
+    @Value("${sql.script.delete.books}")
+    protected String deleteBooks;
+
+    @Value("${sql.script.delete.people}")
+    protected String deletePeople;
 
     @Value("${sql.script.add.people}")
     protected String addPeople;
@@ -21,26 +23,30 @@ public class H2databaseInitTest {
     @Value("${sql.script.add.books}")
     protected String addBooks;
 
-    @Value("${sql.script.drop.table.person}")
-    protected String dropTablePerson;
-
-    @Value("${sql.script.drop.table.book}")
-    protected String dropTableBook;
-
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private LibraryCache libraryCache;
+
     @BeforeEach
     void setUp() {
-        jdbcTemplate.execute(createTablePerson);
-        jdbcTemplate.execute(createTableBook);
+        // the rows are replaced behind Hibernate's back
+        libraryCache.evictAll();
+        jdbcTemplate.execute(deleteBooks);
+        jdbcTemplate.execute(deletePeople);
+        startAfterSeededRows("PERSON_ID_SEQ");
+        startAfterSeededRows("BOOK_ID_SEQ");
         jdbcTemplate.execute(addPeople);
         jdbcTemplate.execute(addBooks);
     }
 
-    @AfterEach
-    void tearDown() {
-        jdbcTemplate.execute(dropTableBook);
-        jdbcTemplate.execute(dropTablePerson);
+    // the seeded rows have fixed ids, the migrations start the sequences at 1; they are moved only once,
+    // since Hibernate keeps its current block of ids between tests
+    private void startAfterSeededRows(String sequence) {
+        Long next = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?", Long.class, sequence);
+        if (next < FIRST_GENERATED_ID)
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + FIRST_GENERATED_ID);
     }
 }